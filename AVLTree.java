@@ -1,6 +1,18 @@
-public class AVLTree{
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+public class AVLTree implements LotIndex{
+
+    private static final int FINGER_HEIGHT = 6; // Searches from a finger only use subtrees up to this height, about 100 parking lots
+    private static final int MAX_FINGER_BACKOFF = 63; // A finger that always misses is still tried once every 64 searches
+    private static final int MAX_STEPS = 64; // Longer than any path of an AVL tree with 2^31 nodes, only a changing tree can reach it
 
     private AVLNode root; // Root of the tree
+    // Node returned by the last search with each flag, searches start next to it since consecutive commands often use nearby capacities
+    // Rotations keep nodes and their parents correct, deleting or rebuilding can drop nodes so the fingers are forgotten then
+    private final AVLNode[] fingers = new AVLNode[(ParkingLot.FREE | ParkingLot.WAITING | ParkingLot.READY) + 1];
+    private final int[] fingerBackoff = new int[fingers.length]; // Searches skipped after the last miss of the finger, doubles with every miss
+    private final int[] fingerSkips = new int[fingers.length]; // Searches left that do not try the finger
     public static class AVLNode{
         private AVLNode left; // Left node
         private AVLNode right; // Right node
@@ -9,11 +21,17 @@ public class AVLTree{
 
         private int height; // Height of the node (distance from this node to leaf), initially 0
 
+        private long truckCount; // Total number of trucks in the parking lots of the subtree rooted at this node
+
+        private int flags; // Flags of every parking lot in the subtree combined with or, see ParkingLot.getFlags
+
         public ParkingLot p; // The parking lot associated with the node
 
         AVLNode(ParkingLot p){
             this.p = p;
             height = 0; // Leaf node's distance to itself is 0
+            truckCount = p.getTruckCount(); // Leaf node's subtree is only itself
+            flags = p.getFlags();
         }
     }
 
@@ -21,22 +39,78 @@ public class AVLTree{
         root = null;
     }
 
-    public String count(int capacity){
+    @Override
+    public long count(int capacity){
         // Counts the number of trucks in parking lots with capacityConstraint greater than capacity
-        return Integer.toString(findSum(root, capacity));
+        return findSum(capacity, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public long countRange(int low, int high){
+        // Counts the number of trucks in parking lots with low <= capacityConstraint <= high
+        if (low > high) // Empty range
+            return 0;
+        return findSum((long) low - 1, Integer.MAX_VALUE) - findSum(high, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public long tryCount(int capacity){
+        return findSum(capacity, MAX_STEPS);
     }
 
-    private int findSum(AVLNode node, int capacity){
-        if (node == null) // Base case, null node has 0 trucks
+    @Override
+    public long tryCountRange(int low, int high){
+        if (low > high)
             return 0;
+        long above = findSum(high, MAX_STEPS);
+        long sum = findSum((long) low - 1, MAX_STEPS);
+        if (above == -1 || sum == -1)
+            return -1;
+        return sum - above;
+    }
 
-        int impact = 0; // Impact of the current node on summation
-        if (node.p.getCapacityConstraint() > capacity) // If its capacityConstraint is greater, set impact to it
-            impact = node.p.getTruckCount();
-        // Otherwise, impact stays 0
+    private long findSum(long capacity, int maxSteps){
+        // Sum of the trucks in parking lots with capacityConstraint greater than capacity, only one path from root is visited
+        // A rotation by another thread can make the path longer or even a cycle, so the walk gives up with -1 after maxSteps nodes
+        // A node inserted by another thread can also be seen before its parking lot, the walk gives up then too
+        long sum = 0;
+        AVLNode node = root;
+        while (node != null){
+            ParkingLot p = node.p;
+            if (maxSteps-- == 0 || p == null)
+                return -1;
+            if (p.getCapacityConstraint() > capacity){
+                // This node and its whole right subtree are greater, so take their impact and continue on the left
+                sum += p.getTruckCount() + getTruckCount(node.right);
+                node = node.left;
+            }
+            else // This node and its left subtree are not greater, answer is in the right subtree
+                node = node.right;
+        }
+        return sum;
+    }
+
+    @Override
+    public void update(ParkingLot p){
+        // Must be called after trucks of the parking lot have changed, so that truck counts and flags above it are correct again
+        update(root, p);
+    }
 
-        // Return the sum of findSum(left subtree) + findSum(right subtree) + impact
-        return impact + findSum(node.left, capacity) + findSum(node.right, capacity);
+    private boolean update(AVLNode node, ParkingLot p){
+        if (node == null) // Parking lot is not in this tree, nothing to update
+            return false;
+
+        boolean found;
+        if (p.compareTo(node.p) < 0)
+            found = update(node.left, p);
+        else if (p.compareTo(node.p) > 0)
+            found = update(node.right, p);
+        else
+            found = node.p == p; // Another parking lot with the same capacity might be stored here instead
+
+        if (found) // Every node on the path from root to the parking lot contains it in its subtree, children are already updated
+            updateNode(node);
+        return found;
     }
 
 
@@ -60,45 +134,159 @@ public class AVLTree{
         return current.parent;
     }
 
-    public AVLNode findSmallerThan(int capacity){
-        // Finds the node that contains the parking lot with greatest capacity that is smaller than or equal to given capacity
-        return findSmallerThan(root, capacity, null);
+    @Override
+    public ParkingLot get(int capacity){
+        AVLNode node = root;
+        while (node != null && node.p.getCapacityConstraint() != capacity)
+            node = capacity < node.p.getCapacityConstraint() ? node.left : node.right;
+        return node == null ? null : node.p;
     }
 
-    private AVLNode findSmallerThan(AVLNode node, int capacity, AVLNode best){
-        if (node == null) // Base case, return the best candidate if node is null
-            return best;
+    @Override
+    public ParkingLot findSmallerThan(int capacity, int flag){
+        // Finds the parking lot with greatest capacity that is smaller than or equal to given capacity and has the given flag
+        // Search starts from the finger of the flag if it is worth trying, and from the root if the answer is not near the finger
+        AVLNode found = useFinger(flag) ? fingerResult(flag, findSmallerFrom(fingers[flag], capacity, flag)) : null;
+        if (found == null)
+            found = findSmallerThan(root, capacity, flag);
+        if (found == null)
+            return null;
+        fingers[flag] = found;
+        return found.p;
+    }
 
-        // Case-1 If current node's parking lot is smaller than or equal to given capacity, we might find our best
-        if (node.p.getCapacityConstraint() <= capacity){
-            best = node; // Update best
-            return findSmallerThan(node.right, capacity, best); // Go to right for further exploration
+    private boolean useFinger(int flag){
+        // A finger that keeps missing is tried again only after more and more searches, so workloads without locality do not pay for it
+        if (fingers[flag] == null)
+            return false;
+        if (fingerSkips[flag] > 0){
+            fingerSkips[flag]--;
+            if (Stats.ENABLED)
+                Stats.fingerSkips++;
+            return false;
         }
-        // Case-2 If current node's parking lot is greater than to given capacity, we shall go to left
-        return findSmallerThan(node.left, capacity, best);
+        return true;
     }
 
-    public AVLNode findGreaterThan(int capacity){
-        // Finds the node that contains the parking lot with smallest capacity that is greater than or equal to given capacity
-        return findGreaterThan(root, capacity, null);
+    private AVLNode fingerResult(int flag, AVLNode found){
+        // Records whether the search from the finger found the answer, found is returned
+        if (found != null)
+            fingerBackoff[flag] = 0;
+        else{
+            fingerBackoff[flag] = Math.min(MAX_FINGER_BACKOFF, 2 * fingerBackoff[flag] + 1);
+            fingerSkips[flag] = fingerBackoff[flag];
+        }
+        if (Stats.ENABLED){
+            if (found != null)
+                Stats.fingerHits++;
+            else
+                Stats.fingerMisses++;
+        }
+        return found;
+    }
+
+    private AVLNode findSmallerFrom(AVLNode finger, int capacity, int flag){
+        // Goes up from the finger to a node whose right subtree has every capacity between its own and capacity, then searches there
+        // Nodes walked up and down are about log d, d being the number of parking lots between the finger and the answer
+        // Only nodes up to FINGER_HEIGHT are tried, null if the answer is farther or smaller than the node
+        AVLNode node = finger;
+        if (node.p.getCapacityConstraint() > capacity){
+            // First ancestor with a smaller capacity, the finger is in its right subtree so the capacities up to capacity are too
+            while (node != null && node.p.getCapacityConstraint() > capacity && node.height <= FINGER_HEIGHT)
+                node = node.parent;
+            if (node == null || node.p.getCapacityConstraint() > capacity)
+                return null;
+        }
+        else{
+            // Capacities between a left child and its parent are the right subtree of the child
+            while (node.parent != null && (node != node.parent.left || node.parent.p.getCapacityConstraint() <= capacity) && node.height <= FINGER_HEIGHT)
+                node = node.parent;
+        }
+        if (node.height > FINGER_HEIGHT)
+            return null;
+
+        AVLNode best = findSmallerThan(node.right, capacity, flag);
+        if (best == null && (node.p.getFlags() & flag) != 0)
+            best = node;
+        return best;
     }
 
-    private AVLNode findGreaterThan(AVLNode node, int capacity, AVLNode best){
-        if (node == null) // Base case, return the best candidate if node is null
+    private AVLNode findSmallerThan(AVLNode node, int capacity, int flag){
+        if (node == null || (node.flags & flag) == 0) // Base case, no parking lot in this subtree has the flag
+            return null;
+
+        // Case-1 If current node's parking lot is greater than given capacity, we shall go to left
+        if (node.p.getCapacityConstraint() > capacity)
+            return findSmallerThan(node.left, capacity, flag);
+
+        // Case-2 Current node's parking lot is smaller than or equal to given capacity, greater ones are on the right
+        AVLNode best = findSmallerThan(node.right, capacity, flag);
+        if (best != null)
             return best;
+        if ((node.p.getFlags() & flag) != 0) // Nothing suitable on the right, so current one is the best if it has the flag
+            return node;
+        // Every parking lot on the left is smaller, flags guarantee that this search does not go back up
+        return findSmallerThan(node.left, capacity, flag);
+    }
+
+    @Override
+    public ParkingLot findGreaterThan(int capacity, int flag){
+        // Finds the parking lot with smallest capacity that is greater than or equal to given capacity and has the given flag
+        // Mirror of findSmallerThan
+        AVLNode found = useFinger(flag) ? fingerResult(flag, findGreaterFrom(fingers[flag], capacity, flag)) : null;
+        if (found == null)
+            found = findGreaterThan(root, capacity, flag);
+        if (found == null)
+            return null;
+        fingers[flag] = found;
+        return found.p;
+    }
 
-        // Case-1 If the current node's parking lot is greater than or equal to given capacity, we might find our best
-        if (node.p.getCapacityConstraint() >= capacity){
-            best = node; // Update best
-            return findGreaterThan(node.left, capacity, best); // Go to left for further exploration
+    private AVLNode findGreaterFrom(AVLNode finger, int capacity, int flag){
+        // Mirror of findSmallerFrom
+        AVLNode node = finger;
+        if (node.p.getCapacityConstraint() < capacity){
+            while (node != null && node.p.getCapacityConstraint() < capacity && node.height <= FINGER_HEIGHT)
+                node = node.parent;
+            if (node == null || node.p.getCapacityConstraint() < capacity)
+                return null;
         }
-        // Case-2 If the current node's parking lot is smaller than given capacity, we shall go right
-        return findGreaterThan(node.right, capacity, best);
+        else{
+            while (node.parent != null && (node != node.parent.right || node.parent.p.getCapacityConstraint() >= capacity) && node.height <= FINGER_HEIGHT)
+                node = node.parent;
+        }
+        if (node.height > FINGER_HEIGHT)
+            return null;
+
+        AVLNode best = findGreaterThan(node.left, capacity, flag);
+        if (best == null && (node.p.getFlags() & flag) != 0)
+            best = node;
+        return best;
+    }
+
+    private AVLNode findGreaterThan(AVLNode node, int capacity, int flag){
+        if (node == null || (node.flags & flag) == 0) // Base case, no parking lot in this subtree has the flag
+            return null;
+
+        // Case-1 If the current node's parking lot is smaller than given capacity, we shall go right
+        if (node.p.getCapacityConstraint() < capacity)
+            return findGreaterThan(node.right, capacity, flag);
+
+        // Case-2 Current node's parking lot is greater than or equal to given capacity, smaller ones are on the left
+        AVLNode best = findGreaterThan(node.left, capacity, flag);
+        if (best != null)
+            return best;
+        if ((node.p.getFlags() & flag) != 0) // Nothing suitable on the left, so current one is the best if it has the flag
+            return node;
+        // Every parking lot on the right is greater, flags guarantee that this search does not go back up
+        return findGreaterThan(node.right, capacity, flag);
     }
 
+    @Override
     public void delete(int capacity){
         // Delete the specified node with parking lot with given capacity (if exists) then set the root to the new tree
         root = delete(root, capacity);
+        Arrays.fill(fingers, null); // Deleted node, or the node of the successor that was moved, might be a finger
     }
 
     public AVLNode delete(AVLNode node, int capacity){
@@ -168,12 +356,13 @@ public class AVLTree{
             }
         }
 
-        updateHeight(node); // Update the height of the node
+        updateNode(node); // Update the height and truck count of the node
         return balance(node); // Balance the node
 
     }
 
 
+    @Override
     public void insert(ParkingLot p){
         // Insert the specified node with parking lot with given capacity (if is not duplicate) then set the root to the new tree
         root = insert(root, p, null);
@@ -181,6 +370,59 @@ public class AVLTree{
 
 
 
+    @Override
+    public void build(ParkingLot[] lots){
+        // Middle parking lot is the root and both halves are built the same way, so the tree is balanced without rotations
+        root = build(lots, 0, lots.length - 1, null);
+        Arrays.fill(fingers, null);
+    }
+
+    private AVLNode build(ParkingLot[] lots, int from, int to, AVLNode parent){
+        if (from > to)
+            return null;
+        int middle = (from + to) >>> 1;
+        AVLNode node = new AVLNode(lots[middle]);
+        node.parent = parent;
+        node.left = build(lots, from, middle - 1, node);
+        node.right = build(lots, middle + 1, to, node);
+        updateNode(node);
+        return node;
+    }
+
+    @Override
+    public void insertAll(ParkingLot[] lots){
+        // Small batches are inserted one by one for about height steps each, larger ones are merged with the parking lots of the tree
+        // and the tree is built again in O(n), a tree of this height has roughly 2^height nodes
+        if (lots.length == 0)
+            return;
+        if (root == null){
+            build(lots);
+            return;
+        }
+        if ((long) lots.length * (root.height + 1) < 1L << Math.min(62, root.height)){
+            for (ParkingLot p : lots)
+                insert(p);
+            return;
+        }
+        ParkingLot[] merged = LotIndex.merge(this, lots);
+        root = build(merged, 0, merged.length - 1, null);
+        Arrays.fill(fingers, null);
+    }
+
+    @Override
+    public void forEach(Consumer<ParkingLot> action){
+        forEach(root, action);
+    }
+
+    private void forEach(AVLNode node, Consumer<ParkingLot> action){
+        // In-order walk, recursion depth is the height of the tree
+        if (node == null)
+            return;
+        forEach(node.left, action);
+        action.accept(node.p);
+        forEach(node.right, action);
+    }
+
     public AVLNode insert(AVLNode node, ParkingLot p, AVLNode parent){
         if (node == null){
             // If node is null, parent is where we want to add this parking lot below
@@ -197,7 +439,7 @@ public class AVLTree{
             return node; // Insertion of duplicate values is not allowed
         }
 
-        updateHeight(node); // Since we inserted a new node to an avl tree, heights are changed
+        updateNode(node); // Since we inserted a new node to an avl tree, heights and truck counts are changed
         return balance(node); // Since we inserted a new node to an avl tree, balance factors might have changed
     }
 
@@ -208,21 +450,21 @@ public class AVLTree{
             // Left-Left case, inserted node is in the left subtree of node's left node
             node = rightRotate(node);
         }
-        if (bf < -1 && getBalanceFactor(node.left) <= 0){
+        else if (bf < -1 && getBalanceFactor(node.right) <= 0){
             // Right-Right case, inserted node is in the right subtree of node's right node
             node = leftRotate(node);
         }
-        if (bf > 1 && getBalanceFactor(node.left) < 0){
+        else if (bf > 1 && getBalanceFactor(node.left) < 0){
             // Left-Right case, inserted node is in the right subtree of node's left node
 
             node.left = leftRotate(node.left); // First, perform left rotation on node's left
             node = rightRotate(node); // Second, perform right rotation on the node itself
         }
-        if (bf < -1 && getBalanceFactor(node.right) > 0){
+        else if (bf < -1 && getBalanceFactor(node.right) > 0){
             // Right-Left case, inserted node is in the left subtree of node's right node
 
             node.right = rightRotate(node.right); // First, perform right rotation on node's right
-            node = rightRotate(node); // Second, perform left rotation on the node itself
+            node = leftRotate(node); // Second, perform left rotation on the node itself
         }
 
         return node; // If we are here, node is balanced so just return it.
@@ -230,6 +472,8 @@ public class AVLTree{
 
 
     private AVLNode rightRotate(AVLNode imbalancedNode){
+        if (Stats.ENABLED)
+            Stats.rotations++;
         AVLNode newNode = imbalancedNode.left; // New node is the node that will take the place of imbalanced node
         imbalancedNode.left = newNode.right; // Step 1-) change imbalanced node's left to newNode's right
 
@@ -252,13 +496,15 @@ public class AVLTree{
             }
         }
 
-        updateHeight(imbalancedNode); // Update height of initially imbalanced node
-        updateHeight(newNode); // Update height of the newNode
+        updateNode(imbalancedNode); // Update height and truck count of initially imbalanced node
+        updateNode(newNode); // Update height and truck count of the newNode
 
         return newNode; // Return newNode since it has taken the place of the imbalanced node
     }
 
     private AVLNode leftRotate(AVLNode imbalancedNode){
+        if (Stats.ENABLED)
+            Stats.rotations++;
         AVLNode newNode = imbalancedNode.right; // New node is the node that will take the place of imbalanced node
         imbalancedNode.right = newNode.left; // Step 1-) change imbalanced node's right to newNode's left
 
@@ -281,18 +527,30 @@ public class AVLTree{
             }
         }
 
-        updateHeight(imbalancedNode); // Update height of initially imbalanced node
-        updateHeight(newNode); // Update height of the newNode
+        updateNode(imbalancedNode); // Update height and truck count of initially imbalanced node
+        updateNode(newNode); // Update height and truck count of the newNode
 
         return newNode; // Return newNode since it has taken the place of the imbalanced node
     }
 
+    private void updateNode(AVLNode node){
+        // Children are always updated before their parents, so every value can be calculated from children
+        updateHeight(node);
+        node.truckCount = node.p.getTruckCount() + getTruckCount(node.left) + getTruckCount(node.right);
+        node.flags = node.p.getFlags() | getFlags(node.left) | getFlags(node.right);
+    }
+
     private void updateHeight(AVLNode node){
         // This is valid since every node below a node gets updated first, then we go up
         // So, any node's height can be calculated as the biggest one of its right and left child's height + 1
         node.height = 1 + Math.max(getHeight(node.left), getHeight(node.right));
     }
 
+    @Override
+    public int getHeight(){
+        return getHeight(root);
+    }
+
     private int getHeight(AVLNode node){
         if (node == null) // Convention, since leaf nodes' heights are 0, nulls' must be -1
             return -1;
@@ -300,6 +558,18 @@ public class AVLTree{
     }
 
 
+    private long getTruckCount(AVLNode node){
+        if (node == null) // Empty subtree has no trucks
+            return 0;
+        return node.truckCount;
+    }
+
+    private int getFlags(AVLNode node){
+        if (node == null) // Empty subtree has no parking lots
+            return 0;
+        return node.flags;
+    }
+
     private int getBalanceFactor(AVLNode node){
         if (node == null) // Null node's are not imbalanced
             return 0;
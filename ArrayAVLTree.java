@@ -0,0 +1,398 @@
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+public class ArrayAVLTree implements LotIndex {
+    // Same AVL tree as AVLTree, but nodes are indices into parallel arrays instead of objects
+    // Deleted nodes are kept in a free list and reused, so inserting and deleting parking lots does not allocate
+    // Every operation is iterative, the nodes from root to the changed node are kept in path and fixed bottom-up
+
+    private static final int NIL = 0; // Index 0 is the null node, its height is -1 and it has no trucks or flags
+    private static final int MAX_HEIGHT = 64; // Height of an AVL tree with 2^31 nodes is less than 46, also the step limit of tryCount
+
+    private int[] keys = new int[16]; // capacityConstraint of the parking lot of every node
+    private int[] left = new int[16]; // Left child, also the next node in the free list for deleted nodes
+    private int[] right = new int[16]; // Right child
+    private int[] height = new int[16]; // Height of the node (distance from this node to leaf)
+    private long[] truckCount = new long[16]; // Total number of trucks in the subtree
+    private int[] flags = new int[16]; // Flags of every parking lot in the subtree combined with or
+    private int[] lotFlags = new int[16]; // Flags of the node's own parking lot, so walks do not have to visit parking lots
+    private int[] lotTrucks = new int[16]; // Truck count of the node's own parking lot
+    private ParkingLot[] lots = new ParkingLot[16]; // Parking lot of every node
+
+    private int root = NIL;
+    private int used = 1; // Nodes below this index have been used at least once, 0 is NIL
+    private int freeList = NIL; // First deleted node that can be reused
+
+    private final int[] path = new int[MAX_HEIGHT]; // Nodes from root to the node being changed
+
+    ArrayAVLTree(){
+        height[NIL] = -1; // Convention, since leaf nodes' heights are 0, nulls' must be -1
+    }
+
+    private int newNode(ParkingLot p){
+        int node;
+        if (freeList != NIL){ // Reuse a deleted node
+            node = freeList;
+            freeList = left[node];
+        }
+        else{
+            if (used == keys.length)
+                grow();
+            node = used++;
+        }
+        keys[node] = p.getCapacityConstraint();
+        left[node] = NIL;
+        right[node] = NIL;
+        lots[node] = p;
+        readLot(node);
+        updateNode(node);
+        return node;
+    }
+
+    private void freeNode(int node){
+        lots[node] = null; // Let the parking lot be garbage collected
+        left[node] = freeList;
+        freeList = node;
+    }
+
+    private void grow(){
+        // Doubles every array
+        int length = keys.length * 2;
+        keys = Arrays.copyOf(keys, length);
+        left = Arrays.copyOf(left, length);
+        right = Arrays.copyOf(right, length);
+        height = Arrays.copyOf(height, length);
+        truckCount = Arrays.copyOf(truckCount, length);
+        flags = Arrays.copyOf(flags, length);
+        lotFlags = Arrays.copyOf(lotFlags, length);
+        lotTrucks = Arrays.copyOf(lotTrucks, length);
+        lots = Arrays.copyOf(lots, length);
+    }
+
+    @Override
+    public void insert(ParkingLot p){
+        int capacity = p.getCapacityConstraint();
+        int depth = 0;
+        int node = root;
+        while (node != NIL){
+            if (capacity == keys[node]) // Insertion of duplicate values is not allowed
+                return;
+            path[depth++] = node;
+            node = capacity < keys[node] ? left[node] : right[node];
+        }
+        fixPath(depth, newNode(p), capacity, true);
+    }
+
+    @Override
+    public void build(ParkingLot[] lots){
+        // Middle parking lot is the root and both halves are built the same way, so the tree is balanced without rotations
+        while (keys.length < used + lots.length)
+            grow();
+        root = build(lots, 0, lots.length - 1);
+    }
+
+    private int build(ParkingLot[] lots, int from, int to){
+        if (from > to)
+            return NIL;
+        int middle = (from + to) >>> 1;
+        int node = newNode(lots[middle]);
+        left[node] = build(lots, from, middle - 1);
+        right[node] = build(lots, middle + 1, to);
+        updateNode(node);
+        return node;
+    }
+
+    @Override
+    public void insertAll(ParkingLot[] lots){
+        // Same choice as AVLTree.insertAll, a rebuilt tree starts again from the first node and takes every slot in order
+        if (lots.length == 0)
+            return;
+        if (root == NIL){
+            build(lots);
+            return;
+        }
+        if ((long) lots.length * (height[root] + 1) < 1L << Math.min(62, height[root])){
+            for (ParkingLot p : lots)
+                insert(p);
+            return;
+        }
+        ParkingLot[] merged = LotIndex.merge(this, lots);
+        int oldUsed = used;
+        root = NIL;
+        used = 1;
+        freeList = NIL;
+        build(merged);
+        Arrays.fill(this.lots, used, Math.max(used, oldUsed), null); // Slots that are not used anymore keep no parking lots alive
+    }
+
+    @Override
+    public void forEach(Consumer<ParkingLot> action){
+        forEach(root, action);
+    }
+
+    private void forEach(int node, Consumer<ParkingLot> action){
+        // In-order walk, recursion depth is the height of the tree
+        if (node == NIL)
+            return;
+        forEach(left[node], action);
+        action.accept(lots[node]);
+        forEach(right[node], action);
+    }
+
+    @Override
+    public void delete(int capacity){
+        int depth = 0;
+        int node = root;
+        while (node != NIL && keys[node] != capacity){
+            path[depth++] = node;
+            node = capacity < keys[node] ? left[node] : right[node];
+        }
+        if (node == NIL) // We could not find a parking lot with this capacity
+            return;
+
+        int key = capacity; // Key of the node that is physically removed
+        if (left[node] != NIL && right[node] != NIL){
+            // Node has two children, its successor takes its place and the successor's node is removed instead
+            path[depth++] = node;
+            int successor = right[node];
+            while (left[successor] != NIL){
+                path[depth++] = successor;
+                successor = left[successor];
+            }
+            keys[node] = keys[successor];
+            lots[node] = lots[successor];
+            lotFlags[node] = lotFlags[successor];
+            lotTrucks[node] = lotTrucks[successor];
+            key = keys[successor];
+            node = successor;
+        }
+
+        // Removed node has at most one child, that child takes its place
+        int child = left[node] != NIL ? left[node] : right[node];
+        freeNode(node);
+        fixPath(depth, child, key, true);
+    }
+
+    @Override
+    public void update(ParkingLot p){
+        int capacity = p.getCapacityConstraint();
+        int depth = 0;
+        int node = root;
+        while (node != NIL && keys[node] != capacity){
+            path[depth++] = node;
+            node = capacity < keys[node] ? left[node] : right[node];
+        }
+        if (node == NIL || lots[node] != p) // Parking lot is not in this tree
+            return;
+        readLot(node);
+        updateNode(node);
+        fixPath(depth, node, capacity, false); // Shape does not change, only truck counts and flags above it
+    }
+
+    private void fixPath(int depth, int child, int key, boolean rebalance){
+        // child is the new root of the subtree below path[depth - 1] that contains key
+        // Every node on the path gets its child set, is updated and balanced if needed, from bottom to top
+        for (int i = depth - 1; i >= 0; i--){
+            int node = path[i];
+            if (key < keys[node])
+                left[node] = child;
+            else
+                right[node] = child;
+            updateNode(node);
+            child = rebalance ? balance(node) : node;
+        }
+        root = child;
+    }
+
+    private void readLot(int node){
+        // Copies the current state of the node's parking lot, the only place parking lots are visited
+        lotFlags[node] = lots[node].getFlags();
+        lotTrucks[node] = lots[node].getTruckCount();
+    }
+
+    private void updateNode(int node){
+        // Children are always updated before their parents, so every value can be calculated from children
+        height[node] = 1 + Math.max(height[left[node]], height[right[node]]);
+        truckCount[node] = lotTrucks[node] + truckCount[left[node]] + truckCount[right[node]];
+        flags[node] = lotFlags[node] | flags[left[node]] | flags[right[node]];
+    }
+
+    private int balance(int node){
+        int bf = height[left[node]] - height[right[node]]; // Left node height - right node height
+
+        if (bf > 1){
+            // Left-Right case needs a left rotation on the left child first, then both are the Left-Left case
+            if (height[left[left[node]]] < height[right[left[node]]])
+                left[node] = leftRotate(left[node]);
+            return rightRotate(node);
+        }
+        if (bf < -1){
+            // Right-Left case needs a right rotation on the right child first, then both are the Right-Right case
+            if (height[left[right[node]]] > height[right[right[node]]])
+                right[node] = rightRotate(right[node]);
+            return leftRotate(node);
+        }
+        return node; // If we are here, node is balanced so just return it.
+    }
+
+    private int rightRotate(int imbalancedNode){
+        if (Stats.ENABLED)
+            Stats.rotations++;
+        int newNode = left[imbalancedNode]; // New node is the node that will take the place of imbalanced node
+        left[imbalancedNode] = right[newNode];
+        right[newNode] = imbalancedNode;
+        updateNode(imbalancedNode); // It is below newNode now, so it is updated first
+        updateNode(newNode);
+        return newNode;
+    }
+
+    private int leftRotate(int imbalancedNode){
+        if (Stats.ENABLED)
+            Stats.rotations++;
+        int newNode = right[imbalancedNode]; // New node is the node that will take the place of imbalanced node
+        right[imbalancedNode] = left[newNode];
+        left[newNode] = imbalancedNode;
+        updateNode(imbalancedNode); // It is below newNode now, so it is updated first
+        updateNode(newNode);
+        return newNode;
+    }
+
+    @Override
+    public ParkingLot get(int capacity){
+        int node = root;
+        while (node != NIL && keys[node] != capacity)
+            node = capacity < keys[node] ? left[node] : right[node];
+        return lots[node]; // lots[NIL] is null
+    }
+
+    @Override
+    public ParkingLot findSmallerThan(int capacity, int flag){
+        // Going down to capacity, every time we go right the node and its left subtree are smaller than capacity
+        // They are greater than everything found before, so they replace the best candidate if they have the flag
+        int bestNode = NIL; // Best node whose own parking lot has the flag
+        int bestTree = NIL; // Or the best subtree that has the flag somewhere, only one of them is used
+        int node = root;
+        while (node != NIL && (flags[node] & flag) != 0){
+            if (keys[node] > capacity)
+                node = left[node];
+            else{
+                if ((lotFlags[node] & flag) != 0){
+                    bestNode = node;
+                    bestTree = NIL;
+                }
+                else if ((flags[left[node]] & flag) != 0){
+                    bestNode = NIL;
+                    bestTree = left[node];
+                }
+                node = right[node];
+            }
+        }
+        if (bestTree == NIL)
+            return bestNode == NIL ? null : lots[bestNode];
+
+        // Greatest parking lot with the flag in bestTree, flags guarantee that it exists
+        node = bestTree;
+        while (true){
+            if ((flags[right[node]] & flag) != 0)
+                node = right[node];
+            else if ((lotFlags[node] & flag) != 0)
+                return lots[node];
+            else
+                node = left[node];
+        }
+    }
+
+    @Override
+    public ParkingLot findGreaterThan(int capacity, int flag){
+        // Mirror of findSmallerThan
+        int bestNode = NIL;
+        int bestTree = NIL;
+        int node = root;
+        while (node != NIL && (flags[node] & flag) != 0){
+            if (keys[node] < capacity)
+                node = right[node];
+            else{
+                if ((lotFlags[node] & flag) != 0){
+                    bestNode = node;
+                    bestTree = NIL;
+                }
+                else if ((flags[right[node]] & flag) != 0){
+                    bestNode = NIL;
+                    bestTree = right[node];
+                }
+                node = left[node];
+            }
+        }
+        if (bestTree == NIL)
+            return bestNode == NIL ? null : lots[bestNode];
+
+        // Smallest parking lot with the flag in bestTree, flags guarantee that it exists
+        node = bestTree;
+        while (true){
+            if ((flags[left[node]] & flag) != 0)
+                node = left[node];
+            else if ((lotFlags[node] & flag) != 0)
+                return lots[node];
+            else
+                node = right[node];
+        }
+    }
+
+    @Override
+    public int getHeight(){
+        return height[root];
+    }
+
+    private long findSum(long capacity, int maxSteps){
+        // Sum of the trucks in parking lots with capacityConstraint greater than capacity, only one path from root is visited
+        // A rotation by another thread can make the path longer or even a cycle, so the walk gives up with -1 after maxSteps nodes
+        // Arrays are read once since grow by another thread can replace them, a node outside the shortest one also gives up
+        int[] keys = this.keys;
+        int[] left = this.left;
+        int[] right = this.right;
+        int[] lotTrucks = this.lotTrucks;
+        long[] truckCount = this.truckCount;
+        int length = Math.min(Math.min(Math.min(keys.length, left.length), Math.min(right.length, lotTrucks.length)), truckCount.length);
+        long sum = 0;
+        int node = root;
+        while (node != NIL){
+            if (maxSteps-- == 0 || node >= length || right[node] >= length)
+                return -1;
+            if (keys[node] > capacity){
+                sum += lotTrucks[node] + truckCount[right[node]];
+                node = left[node];
+            }
+            else
+                node = right[node];
+        }
+        return sum;
+    }
+
+    @Override
+    public long count(int capacity){
+        return findSum(capacity, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public long countRange(int low, int high){
+        if (low > high) // Empty range
+            return 0;
+        return findSum((long) low - 1, Integer.MAX_VALUE) - findSum(high, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public long tryCount(int capacity){
+        return findSum(capacity, MAX_HEIGHT);
+    }
+
+    @Override
+    public long tryCountRange(int low, int high){
+        if (low > high)
+            return 0;
+        long above = findSum(high, MAX_HEIGHT);
+        long sum = findSum((long) low - 1, MAX_HEIGHT);
+        if (above == -1 || sum == -1)
+            return -1;
+        return sum - above;
+    }
+}
@@ -0,0 +1,203 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+public class BinaryCommandParser implements CommandSource {
+    // Reads commands in the binary format written by BinaryCommandWriter, there are no keywords to compare and no digits to decode
+    // File: MAGIC, VERSION (little endian ints), then the commands one after another
+    // Command: command code (byte, see CommandHandler), then the same operands as in the text line
+    // An integer is a zigzag varint, 7 bits per byte from the lowest ones and the high bit set on every byte but the last, so
+    // numbers between -64 and 63 take a single byte. A text is its varint length and its ASCII bytes, a list its varint count and
+    // its integers
+    // Unlike unknown text lines, an unknown code is an error, the length of its operands is not known
+
+    static final int MAGIC = 0x43425446; // "FTBC" in little endian bytes
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    private static final int BUFFER_SIZE = 1 << 20; // Bytes read from the channel at once
+    private static final int MAX_TEXT = 1 << 20; // Longer text or list is an error, a text line could not be that long either
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer; // Direct buffer the channel reads into
+    private byte[] bytes; // Bytes copied from the buffer, decoding is done on this array
+    private int position; // Index of the next byte to decode in bytes
+    private int end; // Number of valid bytes in bytes
+
+    private boolean headerRead;
+    private boolean cut; // Input ended in the middle of the command being decoded
+    private long commandNumber; // Only used in error messages
+
+    BinaryCommandParser(ReadableByteChannel channel){
+        this.channel = channel;
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        bytes = new byte[BUFFER_SIZE];
+    }
+
+    BinaryCommandParser(){
+        // Parser without a channel, its input is given to parse(byte[], int, int, boolean, CommandHandler)
+        channel = null;
+        buffer = null;
+    }
+
+    @Override
+    public void parse(CommandHandler handler) throws IOException {
+        if (!headerRead)
+            readHeader();
+        while (next(handler));
+        if (cut)
+            throw new IOException("Input ends in the middle of command " + commandNumber);
+    }
+
+    @Override
+    public int parse(byte[] input, int from, int to, boolean last, CommandHandler handler) throws IOException {
+        bytes = input;
+        position = from;
+        end = to;
+        if (!headerRead){
+            if (to - from < HEADER_SIZE){
+                if (last)
+                    throw new IOException("Input ends in the binary header");
+                return from;
+            }
+            readHeader();
+        }
+        while (true){
+            int start = position;
+            if (next(handler))
+                continue;
+            if (!cut)
+                return position;
+            if (last)
+                throw new IOException("Input ends in the middle of command " + commandNumber);
+            cut = false; // Command is decoded again once the rest of it arrived
+            commandNumber--;
+            return start;
+        }
+    }
+
+    private void readHeader() throws IOException {
+        int magic = readFixedInt();
+        int version = readFixedInt();
+        if (cut || magic != MAGIC)
+            throw new IOException("Input is not in the binary command format");
+        if (version != VERSION)
+            throw new IOException("Binary command format version " + version + " is not supported");
+        headerRead = true;
+    }
+
+    private boolean next(CommandHandler handler) throws IOException {
+        // Decodes the next command and sends it to the handler, returns false at the end of the input or if the command is cut
+        int command = read();
+        if (command == -1)
+            return false;
+        commandNumber++;
+        if (command >= CommandHandler.COMMANDS)
+            throw new IOException("Unknown command code " + command + " in command " + commandNumber);
+
+        int first = 0;
+        int second = 0;
+        String text = null;
+        int operands = CommandParser.operandsOf(command);
+        if (operands == CommandParser.TEXT)
+            text = readText();
+        if (operands == CommandParser.LIST)
+            text = readList();
+        if (operands >= 1)
+            first = readInt();
+        if (operands == 2)
+            second = readInt();
+        if (cut)
+            return false;
+        handler.handle(command, first, second, text);
+        return true;
+    }
+
+    private int readInt() throws IOException {
+        // Decodes a zigzag varint, 0 if the input ends before its last byte
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7){
+            int b = read();
+            if (b == -1){
+                cut = true;
+                return 0;
+            }
+            if (shift == 28 && b > 0x0F) // Fifth byte only has the 4 highest bits of an int
+                throw new IOException("Integer out of the int range in command " + commandNumber);
+            value |= (b & 0x7F) << shift;
+            if (b < 0x80)
+                return (value >>> 1) ^ -(value & 1);
+        }
+        throw new IOException("Integer longer than 5 bytes in command " + commandNumber);
+    }
+
+    private int readLength() throws IOException {
+        int length = readInt();
+        if (length < 0 || length > MAX_TEXT)
+            throw new IOException("Length " + length + " out of range in command " + commandNumber);
+        return length;
+    }
+
+    private String readText() throws IOException {
+        int length = readLength();
+        byte[] text = new byte[length];
+        for (int i = 0; i < length && !cut; i++){
+            int b = read();
+            if (b == -1)
+                cut = true;
+            text[i] = (byte) b;
+        }
+        return new String(text, StandardCharsets.US_ASCII);
+    }
+
+    private String readList() throws IOException {
+        // Integers of a list operand are given to the handler as text, like the text parser does, lists are rare
+        int count = readLength();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count && !cut; i++){
+            if (i > 0)
+                text.append(' ');
+            text.append(readInt());
+        }
+        return text.toString();
+    }
+
+    private int readFixedInt() throws IOException {
+        // Little endian int of the header
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 8){
+            int b = read();
+            if (b == -1){
+                cut = true;
+                return 0;
+            }
+            value |= b << shift;
+        }
+        return value;
+    }
+
+    private int read() throws IOException {
+        // Returns the next byte of the input, or -1 if the input has ended
+        if (position == end && !fill())
+            return -1;
+        return bytes[position++] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        // Reads the next chunk of the channel into bytes, returns false if there is nothing left
+        if (channel == null)
+            return false;
+        buffer.clear();
+        int count;
+        do {
+            count = channel.read(buffer);
+        } while (count == 0);
+        if (count < 0)
+            return false;
+        buffer.flip();
+        buffer.get(bytes, 0, count);
+        position = 0;
+        end = count;
+        return true;
+    }
+}
@@ -0,0 +1,82 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+public class BinaryCommandWriter implements CommandHandler {
+    // Encodes every command it is given in the binary format of BinaryCommandParser, so CommandParser and this convert a text
+    // command file to a binary one
+
+    private static final int BUFFER_SIZE = 1 << 16; // Bytes collected before writing to the channel
+    private static final int MAX_ITEM_SIZE = 16; // More than a command code and two varints, or a single varint
+
+    private final WritableByteChannel channel;
+    private final byte[] bytes = new byte[BUFFER_SIZE];
+    private final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    private int position;
+
+    BinaryCommandWriter(WritableByteChannel channel){
+        this.channel = channel;
+        writeFixedInt(BinaryCommandParser.MAGIC);
+        writeFixedInt(BinaryCommandParser.VERSION);
+    }
+
+    @Override
+    public void handle(int command, int first, int second, String text) throws IOException {
+        reserve();
+        bytes[position++] = (byte) command;
+        int operands = CommandParser.operandsOf(command);
+        if (operands == CommandParser.TEXT){
+            writeInt(text.length());
+            for (int i = 0; i < text.length(); i++){
+                if (position == BUFFER_SIZE)
+                    flush();
+                bytes[position++] = (byte) text.charAt(i); // Text is always ASCII
+            }
+        }
+        if (operands == CommandParser.LIST){
+            int[] values = CommandParser.parseInts(text);
+            writeInt(values.length);
+            for (int value : values){
+                reserve();
+                writeInt(value);
+            }
+        }
+        if (operands >= 1)
+            writeInt(first);
+        if (operands == 2)
+            writeInt(second);
+    }
+
+    private void reserve(){
+        if (position > BUFFER_SIZE - MAX_ITEM_SIZE)
+            flush();
+    }
+
+    private void writeInt(int value){
+        // Zigzag varint, see BinaryCommandParser
+        int bits = (value << 1) ^ (value >> 31);
+        while ((bits & ~0x7F) != 0){
+            bytes[position++] = (byte) (bits | 0x80);
+            bits >>>= 7;
+        }
+        bytes[position++] = (byte) bits;
+    }
+
+    private void writeFixedInt(int value){
+        for (int shift = 0; shift < 32; shift += 8)
+            bytes[position++] = (byte) (value >>> shift);
+    }
+
+    public void flush(){
+        // Writes every encoded byte to the channel, the buffer is reused afterwards
+        buffer.clear().limit(position);
+        try{
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+        position = 0;
+    }
+}
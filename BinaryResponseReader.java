@@ -0,0 +1,112 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+public class BinaryResponseReader {
+    // Reads responses in the format of BinaryResponseWriter and gives their items to a ResponseSink
+
+    private static final int BUFFER_SIZE = 1 << 20; // Bytes read from the channel at once
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final byte[] bytes = new byte[BUFFER_SIZE];
+    private int position;
+    private int end;
+    private long responseNumber; // Only used in error messages
+
+    BinaryResponseReader(ReadableByteChannel channel){
+        this.channel = channel;
+    }
+
+    public void copyTo(ResponseSink out) throws IOException {
+        // Sends every item and response end of the channel to out
+        if (readFixedInt() != BinaryResponseWriter.MAGIC)
+            throw new IOException("Input is not in the binary response format");
+        int version = readFixedInt();
+        if (version != BinaryResponseWriter.VERSION)
+            throw new IOException("Binary response format version " + version + " is not supported");
+        while (true){
+            int tag = read();
+            if (tag == -1)
+                return;
+            if (tag == BinaryResponseWriter.END){
+                out.end();
+                responseNumber++;
+                continue;
+            }
+            switch (tag & ~BinaryResponseWriter.LAST){
+                case BinaryResponseWriter.VALUE:
+                    out.value(readLong());
+                    break;
+                case BinaryResponseWriter.PAIR:
+                    out.pair((int) readLong(), (int) readLong());
+                    break;
+                case BinaryResponseWriter.TEXT:
+                    int length = (int) readLong();
+                    if (length < 0)
+                        throw new IOException("Negative text length in response " + (responseNumber + 1));
+                    byte[] text = new byte[length];
+                    for (int i = 0; i < length; i++)
+                        text[i] = (byte) readByte();
+                    out.text(new String(text, StandardCharsets.US_ASCII));
+                    break;
+                default:
+                    throw new IOException("Unknown tag " + tag + " in response " + (responseNumber + 1));
+            }
+            if ((tag & BinaryResponseWriter.LAST) != 0){
+                out.end();
+                responseNumber++;
+            }
+        }
+    }
+
+    private long readLong() throws IOException {
+        // Decodes a zigzag varint
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7){
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b < 0x80)
+                return (value >>> 1) ^ -(value & 1);
+        }
+        throw new IOException("Integer longer than 10 bytes in response " + (responseNumber + 1));
+    }
+
+    private int readFixedInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 8)
+            value |= readByte() << shift;
+        return value;
+    }
+
+    private int readByte() throws IOException {
+        // Next byte inside an item, the input must not end there
+        int b = read();
+        if (b == -1)
+            throw new IOException("Input ends in the middle of response " + (responseNumber + 1));
+        return b;
+    }
+
+    private int read() throws IOException {
+        // Returns the next byte of the input, or -1 if the input has ended
+        if (position == end && !fill())
+            return -1;
+        return bytes[position++] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        buffer.clear();
+        int count;
+        do {
+            count = channel.read(buffer);
+        } while (count == 0);
+        if (count < 0)
+            return false;
+        buffer.flip();
+        buffer.get(bytes, 0, count);
+        position = 0;
+        end = count;
+        return true;
+    }
+}
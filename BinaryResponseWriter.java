@@ -0,0 +1,104 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+public class BinaryResponseWriter implements ResponseWriter {
+    // Writes responses in a binary format instead of text lines, a load response takes about half the bytes of its text
+    // File: MAGIC, VERSION (little endian ints), then the items of every response
+    // Item: tag byte, then a zigzag varint (see BinaryCommandParser) for VALUE, two for PAIR, or the varint length and the ASCII
+    // bytes for TEXT. The lowest bit of the tag is set on the last item of a response, so a response ends without a byte of its
+    // own, only a response without items or whose last tag was already written to the channel gets an END tag
+    // BinaryResponseReader reads the items back into any ResponseSink, like a ChannelResponseWriter to get the text lines
+
+    static final int MAGIC = 0x52425446; // "FTBR" in little endian bytes
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int VALUE = 0; // Tags, LAST is added to the tag of the last item of a response
+    static final int PAIR = 2;
+    static final int TEXT = 4;
+    static final int END = 6;
+    static final int LAST = 1;
+
+    private static final int BUFFER_SIZE = 1 << 16; // Bytes collected before writing to the channel
+    private static final int MAX_ITEM_SIZE = 32; // More than a tag and two varints, or an END tag
+
+    private final WritableByteChannel channel;
+    private final byte[] bytes = new byte[BUFFER_SIZE];
+    private final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    private int position;
+    private int tag = -1; // Index of the tag of the last item in bytes, -1 if there is none or it was written to the channel
+
+    BinaryResponseWriter(WritableByteChannel channel){
+        this.channel = channel;
+        for (int value : new int[]{MAGIC, VERSION})
+            for (int shift = 0; shift < 32; shift += 8)
+                bytes[position++] = (byte) (value >>> shift);
+    }
+
+    @Override
+    public void value(long value){
+        startItem(VALUE);
+        writeLong(value);
+    }
+
+    @Override
+    public void pair(int first, int second){
+        startItem(PAIR);
+        writeLong(first);
+        writeLong(second);
+    }
+
+    @Override
+    public void text(String text){
+        startItem(TEXT);
+        writeLong(text.length());
+        for (int i = 0; i < text.length(); i++){
+            if (position == BUFFER_SIZE)
+                flush();
+            bytes[position++] = (byte) text.charAt(i); // Text is always ASCII
+        }
+    }
+
+    @Override
+    public void end(){
+        if (tag != -1){
+            bytes[tag] |= LAST;
+            tag = -1;
+            return;
+        }
+        if (position == BUFFER_SIZE)
+            flush();
+        bytes[position++] = END;
+    }
+
+    private void startItem(int kind){
+        if (position > BUFFER_SIZE - MAX_ITEM_SIZE)
+            flush();
+        tag = position;
+        bytes[position++] = (byte) kind;
+    }
+
+    private void writeLong(long value){
+        long bits = (value << 1) ^ (value >> 63);
+        while ((bits & ~0x7FL) != 0){
+            bytes[position++] = (byte) (bits | 0x80);
+            bits >>>= 7;
+        }
+        bytes[position++] = (byte) bits;
+    }
+
+    @Override
+    public void flush(){
+        // Writes every encoded byte to the channel, the buffer is reused afterwards
+        buffer.clear().limit(position);
+        try{
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+        position = 0;
+        tag = -1;
+    }
+}
@@ -0,0 +1,158 @@
+import java.util.function.Consumer;
+
+public class BitsetLotIndex implements LotIndex {
+    // Index for capacityConstraints in a known range [0, universe)
+    // Parking lots are stored in an array indexed by capacityConstraint, every flag has its own HierarchicalBitset
+    // Truck counts are kept in a Fenwick tree so that count queries are O(log universe) too
+
+    private final int universe;
+    private final ParkingLot[] lots; // lots[c] is the parking lot with capacityConstraint c, null if it does not exist
+    private final HierarchicalBitset free; // Parking lots with ParkingLot.FREE
+    private final HierarchicalBitset waiting; // Parking lots with ParkingLot.WAITING
+    private final HierarchicalBitset ready; // Parking lots with ParkingLot.READY
+    private final int[] truckCounts; // Truck count of every parking lot when it was last updated
+    private final long[] fenwick; // Fenwick tree of truckCounts, 1-based
+    private long totalTrucks;
+
+    BitsetLotIndex(int universe){
+        this.universe = universe;
+        lots = new ParkingLot[universe];
+        free = new HierarchicalBitset(universe);
+        waiting = new HierarchicalBitset(universe);
+        ready = new HierarchicalBitset(universe);
+        truckCounts = new int[universe];
+        fenwick = new long[universe + 1];
+    }
+
+    @Override
+    public void insert(ParkingLot p){
+        int capacity = p.getCapacityConstraint();
+        if (capacity < 0 || capacity >= universe)
+            throw new IllegalArgumentException("Capacity " + capacity + " is out of the index range [0, " + universe + ")");
+        if (lots[capacity] != null) // Insertion of duplicate values is not allowed
+            return;
+        lots[capacity] = p;
+        update(p);
+    }
+
+    @Override
+    public boolean accepts(int capacity){
+        return capacity >= 0 && capacity < universe;
+    }
+
+    @Override
+    public ParkingLot get(int capacity){
+        return capacity < 0 || capacity >= universe ? null : lots[capacity];
+    }
+
+    @Override
+    public void forEach(Consumer<ParkingLot> action){
+        // Parking lots without any flag are in no bitset, so the whole array is scanned
+        for (ParkingLot p : lots)
+            if (p != null)
+                action.accept(p);
+    }
+
+    @Override
+    public void delete(int capacity){
+        if (capacity < 0 || capacity >= universe || lots[capacity] == null)
+            return;
+        lots[capacity] = null;
+        free.remove(capacity);
+        waiting.remove(capacity);
+        ready.remove(capacity);
+        addTrucks(capacity, -truckCounts[capacity]);
+    }
+
+    @Override
+    public void update(ParkingLot p){
+        int capacity = p.getCapacityConstraint();
+        if (capacity < 0 || capacity >= universe || lots[capacity] != p) // Parking lot is not in this index
+            return;
+
+        int flags = p.getFlags();
+        set(free, capacity, (flags & ParkingLot.FREE) != 0);
+        set(waiting, capacity, (flags & ParkingLot.WAITING) != 0);
+        set(ready, capacity, (flags & ParkingLot.READY) != 0);
+        addTrucks(capacity, p.getTruckCount() - truckCounts[capacity]);
+    }
+
+    private void set(HierarchicalBitset set, int capacity, boolean value){
+        // Bitsets are only touched if membership really changes
+        if (set.contains(capacity) != value){
+            if (value)
+                set.add(capacity);
+            else
+                set.remove(capacity);
+        }
+    }
+
+    private void addTrucks(int capacity, int difference){
+        if (difference == 0)
+            return;
+        truckCounts[capacity] += difference;
+        totalTrucks += difference;
+        for (int i = capacity + 1; i <= universe; i += i & -i)
+            fenwick[i] += difference;
+    }
+
+    private HierarchicalBitset setOf(int flag){
+        // Searches are always done with a single flag
+        if (flag == ParkingLot.FREE)
+            return free;
+        if (flag == ParkingLot.WAITING)
+            return waiting;
+        if (flag == ParkingLot.READY)
+            return ready;
+        throw new IllegalArgumentException("Unknown flag " + flag);
+    }
+
+    @Override
+    public ParkingLot findSmallerThan(int capacity, int flag){
+        if (capacity < 0)
+            return null;
+        int found = setOf(flag).previous(capacity);
+        return found == -1 ? null : lots[found];
+    }
+
+    @Override
+    public ParkingLot findGreaterThan(int capacity, int flag){
+        int found = setOf(flag).next(capacity);
+        return found == -1 ? null : lots[found];
+    }
+
+    private long sumUpTo(long capacity){
+        // Number of trucks in parking lots with capacityConstraint <= capacity
+        if (capacity < 0)
+            return 0;
+        if (capacity >= universe)
+            return totalTrucks;
+        long sum = 0;
+        for (int i = (int) capacity + 1; i > 0; i -= i & -i)
+            sum += fenwick[i];
+        return sum;
+    }
+
+    @Override
+    public long count(int capacity){
+        return totalTrucks - sumUpTo(capacity);
+    }
+
+    @Override
+    public long tryCount(int capacity){
+        // Arrays never change and the walk is at most log(universe) steps, so a changing index is only a problem for the result
+        return count(capacity);
+    }
+
+    @Override
+    public long tryCountRange(int low, int high){
+        return countRange(low, high);
+    }
+
+    @Override
+    public long countRange(int low, int high){
+        if (low > high) // Empty range
+            return 0;
+        return sumUpTo(high) - sumUpTo((long) low - 1);
+    }
+}
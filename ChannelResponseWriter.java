@@ -0,0 +1,98 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+public class ChannelResponseWriter implements ResponseWriter {
+
+    private static final int BUFFER_SIZE = 1 << 16; // Bytes collected before writing to the channel
+    private static final int MAX_ITEM_SIZE = 64; // More than the longest item (" - " and two numbers) or a line end
+
+    private final WritableByteChannel channel;
+    private final byte[] bytes; // Responses are formatted into this array
+    private final ByteBuffer buffer; // Wraps bytes so it can be written to the channel
+    private int position; // Number of formatted bytes waiting in bytes
+    private boolean lineStarted; // Whether the current response already has an item
+
+    private final byte[] digits = new byte[20]; // Digits of a number in reverse order, enough for any long
+
+    ChannelResponseWriter(WritableByteChannel channel){
+        this.channel = channel;
+        bytes = new byte[BUFFER_SIZE];
+        buffer = ByteBuffer.wrap(bytes);
+    }
+
+    @Override
+    public void value(long value){
+        startItem();
+        writeNumber(value);
+    }
+
+    @Override
+    public void pair(int first, int second){
+        startItem();
+        writeNumber(first);
+        bytes[position++] = ' ';
+        writeNumber(second);
+    }
+
+    @Override
+    public void text(String text){
+        startItem();
+        for (int i = 0; i < text.length(); i++){
+            if (position == BUFFER_SIZE)
+                flush();
+            bytes[position++] = (byte) text.charAt(i); // Text is always ASCII
+        }
+    }
+
+    @Override
+    public void end(){
+        if (position > BUFFER_SIZE - MAX_ITEM_SIZE)
+            flush();
+        bytes[position++] = '\n';
+        lineStarted = false;
+    }
+
+    private void startItem(){
+        // Makes sure the item fits into the buffer and puts the separator if it is not the first item of the line
+        if (position > BUFFER_SIZE - MAX_ITEM_SIZE)
+            flush();
+        if (lineStarted){
+            bytes[position++] = ' ';
+            bytes[position++] = '-';
+            bytes[position++] = ' ';
+        }
+        lineStarted = true;
+    }
+
+    private void writeNumber(long value){
+        if (value < 0){
+            bytes[position++] = '-';
+        }
+        else
+            value = -value; // Work with negative numbers so that Long.MIN_VALUE does not overflow
+
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' - value % 10);
+            value /= 10;
+        } while (value != 0);
+
+        while (count > 0) // Digits were found from the last one, so copy them backwards
+            bytes[position++] = digits[--count];
+    }
+
+    @Override
+    public void flush(){
+        // Writes every formatted byte to the channel, the buffer is reused afterwards
+        buffer.clear().limit(position);
+        try{
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+        position = 0;
+    }
+}
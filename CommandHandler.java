@@ -0,0 +1,23 @@
+import java.io.IOException;
+
+public interface CommandHandler {
+    // Command codes, parsers turn every known input line into one of these codes with its operands
+    int CREATE_PARKING_LOT = 0; // capacityConstraint, truckLimit
+    int ADD_TRUCK = 1; // truckID, capacity
+    int DELETE_PARKING_LOT = 2; // capacityConstraint
+    int READY = 3; // capacityConstraint
+    int LOAD = 4; // capacityConstraint, loadAmount
+    int COUNT = 5; // capacity
+    int COUNT_RANGE = 6; // low, high
+    int STATS = 7; // No operands
+    int SNAPSHOT = 8; // path as text
+    int CREATE_PARKING_LOTS = 9; // capacityConstraint and truckLimit pairs as text
+    int LOCATE = 10; // truckID
+    int REMOVE_TRUCK = 11; // truckID
+    int READY_N = 12; // capacityConstraint, count
+
+    int COMMANDS = 13; // Number of command codes, arrays indexed by command code have this length
+
+    // Called once per command in input order, unused operands are 0 and text is null for commands without a text operand
+    void handle(int command, int first, int second, String text) throws IOException;
+}
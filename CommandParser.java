@@ -0,0 +1,242 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class CommandParser implements CommandSource {
+
+    private static final int BUFFER_SIZE = 1 << 20; // Bytes read from the channel at once
+
+    // Keywords as bytes, index of a keyword is its command code in CommandHandler
+    private static final byte[][] KEYWORDS = {
+            "create_parking_lot".getBytes(StandardCharsets.US_ASCII),
+            "add_truck".getBytes(StandardCharsets.US_ASCII),
+            "delete_parking_lot".getBytes(StandardCharsets.US_ASCII),
+            "ready".getBytes(StandardCharsets.US_ASCII),
+            "load".getBytes(StandardCharsets.US_ASCII),
+            "count".getBytes(StandardCharsets.US_ASCII),
+            "count_range".getBytes(StandardCharsets.US_ASCII),
+            "stats".getBytes(StandardCharsets.US_ASCII),
+            "snapshot".getBytes(StandardCharsets.US_ASCII),
+            "create_parking_lots".getBytes(StandardCharsets.US_ASCII),
+            "locate".getBytes(StandardCharsets.US_ASCII),
+            "remove_truck".getBytes(StandardCharsets.US_ASCII),
+            "ready_n".getBytes(StandardCharsets.US_ASCII)
+    };
+
+    static final int TEXT = -1; // Command takes a single text operand instead of integers, like a path
+    static final int LIST = -2; // Command takes any number of integers, the rest of the line is its text operand, see parseInts
+
+    // Number of integer operands each command takes, same indexing as KEYWORDS
+    private static final int[] OPERANDS = {2, 2, 1, 1, 2, 1, 2, 0, TEXT, LIST, 1, 1, 2};
+
+    public static String nameOf(int command){
+        // Keyword of the command code, used in reports
+        return new String(KEYWORDS[command], StandardCharsets.US_ASCII);
+    }
+
+    static int operandsOf(int command){
+        // Number of integer operands of the command code, or TEXT or LIST, the binary format encodes the same operands
+        return OPERANDS[command];
+    }
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer; // Direct buffer the channel reads into
+    private byte[] bytes; // Bytes copied from the buffer, parsing is done on this array
+    private int position; // Index of the next byte to parse in bytes
+    private int end; // Number of valid bytes in bytes
+
+    private int current; // Byte under the cursor, -1 at the end of the input
+    private final byte[] keyword = new byte[32]; // Keyword of the current line, longer keywords are unknown anyway
+    private long lineNumber; // Only used in error messages
+
+    CommandParser(ReadableByteChannel channel){
+        this.channel = channel;
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        bytes = new byte[BUFFER_SIZE];
+    }
+
+    CommandParser(){
+        // Parser without a channel, its input is given to parse(byte[], int, int, CommandHandler)
+        channel = null;
+        buffer = null;
+    }
+
+    @Override
+    public int parse(byte[] input, int from, int to, boolean last, CommandHandler handler) throws IOException {
+        // Parses up to the last line end, unless the input has ended and the last line does not need one
+        int lineEnd = to;
+        if (!last){
+            while (lineEnd > from && input[lineEnd - 1] != '\n')
+                lineEnd--;
+            if (lineEnd == from)
+                return from;
+        }
+        bytes = input;
+        position = from;
+        end = lineEnd;
+        parse(handler);
+        return lineEnd;
+    }
+
+    @Override
+    public void parse(CommandHandler handler) throws IOException {
+        // Reads every line until the end of the channel and sends the known commands to the handler
+        // Nothing is allocated per line, keywords and integers are decoded directly from the bytes
+        current = read();
+        while (current != -1){
+            lineNumber++;
+            skipSpaces();
+
+            int length = 0;
+            while (current != ' ' && current != '\n' && current != '\r' && current != -1){
+                if (length < keyword.length)
+                    keyword[length] = (byte) current;
+                length++;
+                current = read();
+            }
+
+            int command = findCommand(length);
+            if (command != -1){
+                int first = 0;
+                int second = 0;
+                String text = null;
+                if (OPERANDS[command] == TEXT)
+                    text = readText();
+                if (OPERANDS[command] == LIST)
+                    text = readLine();
+                if (OPERANDS[command] >= 1)
+                    first = readInt();
+                if (OPERANDS[command] == 2)
+                    second = readInt();
+                handler.handle(command, first, second, text);
+            }
+
+            while (current != '\n' && current != -1) // Skip the rest of the line, unknown commands are ignored like before
+                current = read();
+            if (current == '\n')
+                current = read();
+        }
+    }
+
+    private void skipSpaces() throws IOException {
+        while (current == ' ' || current == '\r')
+            current = read();
+    }
+
+    private int readInt() throws IOException {
+        // Decodes an optionally negative integer after the cursor
+        skipSpaces();
+
+        boolean negative = false;
+        if (current == '-'){
+            negative = true;
+            current = read();
+        }
+        if (current < '0' || current > '9')
+            throw new IOException("Expected a number in line " + lineNumber);
+
+        // Accumulate as a negative number so that Integer.MIN_VALUE can be parsed too
+        // Numbers outside of the int range are rejected like Integer.parseInt did, instead of wrapping around
+        int value = 0;
+        while (current >= '0' && current <= '9'){
+            int digit = current - '0';
+            if (value < (Integer.MIN_VALUE + digit) / 10)
+                throw new IOException("Expected a number in line " + lineNumber);
+            value = value * 10 - digit;
+            current = read();
+        }
+        if (!negative && value == Integer.MIN_VALUE)
+            throw new IOException("Expected a number in line " + lineNumber);
+        return negative ? value : -value;
+    }
+
+    private String readText() throws IOException {
+        // Reads the word after the cursor, only rare commands have text so it can allocate
+        skipSpaces();
+        StringBuilder text = new StringBuilder();
+        while (current != ' ' && current != '\n' && current != '\r' && current != -1){
+            text.append((char) current);
+            current = read();
+        }
+        if (text.length() == 0)
+            throw new IOException("Expected a text in line " + lineNumber);
+        return text.toString();
+    }
+
+    private String readLine() throws IOException {
+        // Reads the rest of the line, commands with a list are rare and long, so a single string is cheaper than a handler call per integer
+        StringBuilder text = new StringBuilder();
+        while (current != '\n' && current != -1){
+            if (current != '\r')
+                text.append((char) current);
+            current = read();
+        }
+        return text.toString();
+    }
+
+    public static int[] parseInts(String text) throws IOException {
+        // Integers of a list operand separated by spaces
+        int[] values = new int[16];
+        int count = 0;
+        int i = 0;
+        while (true){
+            while (i < text.length() && text.charAt(i) == ' ')
+                i++;
+            if (i == text.length())
+                break;
+            int start = i;
+            while (i < text.length() && text.charAt(i) != ' ')
+                i++;
+            if (count == values.length)
+                values = Arrays.copyOf(values, count * 2);
+            try{
+                values[count++] = Integer.parseInt(text, start, i, 10);
+            }catch (NumberFormatException e){
+                throw new IOException("Expected a number but found " + text.substring(start, i));
+            }
+        }
+        return Arrays.copyOf(values, count);
+    }
+
+    private int findCommand(int length){
+        // Compares the keyword of the current line with every known keyword, returns -1 if it is unknown
+        for (int i = 0; i < KEYWORDS.length; i++){
+            byte[] k = KEYWORDS[i];
+            if (k.length != length)
+                continue;
+            int j = 0;
+            while (j < length && k[j] == keyword[j])
+                j++;
+            if (j == length)
+                return i;
+        }
+        return -1;
+    }
+
+    private int read() throws IOException {
+        // Returns the next byte of the input, or -1 if the input has ended
+        if (position == end && !fill())
+            return -1;
+        return bytes[position++] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        // Reads the next chunk of the channel into bytes, returns false if there is nothing left
+        if (channel == null)
+            return false;
+        buffer.clear();
+        int count;
+        do {
+            count = channel.read(buffer);
+        } while (count == 0);
+        if (count < 0)
+            return false;
+        buffer.flip();
+        buffer.get(bytes, 0, count);
+        position = 0;
+        end = count;
+        return true;
+    }
+}
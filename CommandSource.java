@@ -0,0 +1,12 @@
+import java.io.IOException;
+
+public interface CommandSource {
+    // Parser of a command format, CommandParser reads the text lines and BinaryCommandParser the binary encoding
+
+    // Reads every command until the end of the channel and sends the known commands to the handler
+    void parse(CommandHandler handler) throws IOException;
+
+    // Parses the complete commands of input[from, to) and returns where the first incomplete one starts, used by FleetServer for
+    // the bytes a connection sent so far, if last is set the input has ended and every command must be complete
+    int parse(byte[] input, int from, int to, boolean last, CommandHandler handler) throws IOException;
+}
@@ -0,0 +1,309 @@
+import java.nio.file.Path;
+import java.util.concurrent.locks.StampedLock;
+
+public class ConcurrentTruckSimulator extends TruckSimulator {
+    // TruckSimulator that can be used by many threads at the same time, every thread writes its responses to its own sink
+    // Parking lots are in a ShardedLotIndex and every shard has a lock, a command holds the locks of every shard it can touch
+    // Locks are always acquired in ascending shard order, so two commands can never wait for each other
+    // add_truck and ready first try with the lock of their own shard only, and lock the next shards only if they have to search them
+    // Commands of different shards run in parallel, results are the same as running the commands one by one in some order
+    // count and count_range do not lock at all if they can, they read the shards optimistically and check the stamps of the locks
+    // afterwards, so many readers can count while a writer changes other shards or even the same ones
+    // Every shard has its own TruckLocations for the trucks of its parking lots, locate and remove_truck lock every shard
+    // Stats counters are not thread safe, they are only correct if a single thread uses the simulator
+
+    private static final int OPTIMISTIC_TRIES = 3; // Optimistic reads of a count before it takes read locks
+
+    private final ShardedLotIndex shards;
+    private final StampedLock[] locks;
+    private final int last; // Last shard
+    private final TruckLocations[] locations; // Trucks of the parking lots of every shard, guarded by the lock of the shard
+
+    ConcurrentTruckSimulator(ShardedLotIndex shards){
+        super(shards);
+        this.shards = shards;
+        locks = new StampedLock[shards.getShardCount()];
+        for (int i = 0; i < locks.length; i++)
+            locks[i] = new StampedLock();
+        last = locks.length - 1;
+        locations = new TruckLocations[locks.length];
+        for (int i = 0; i < locks.length; i++)
+            locations[i] = new HeapTruckLocations();
+    }
+
+    @Override
+    protected TruckLocations locations(int capacityConstraint){
+        return locations[shards.shardOf(capacityConstraint)];
+    }
+
+    @Override
+    protected TruckLocations locationsOf(int truckID){
+        // Caller holds the locks of every shard, a truck can be in any of them
+        for (TruckLocations map : locations)
+            if (map.find(truckID) != -1)
+                return map;
+        return null;
+    }
+
+    private long[] lock(int from, int to){
+        // Stamps of the write locks of the shards from..to, given back to unlock
+        long[] stamps = new long[to - from + 1];
+        for (int shard = from; shard <= to; shard++)
+            stamps[shard - from] = locks[shard].writeLock();
+        return stamps;
+    }
+
+    private void unlock(int from, int to, long[] stamps){
+        for (int shard = to; shard >= from; shard--)
+            locks[shard].unlockWrite(stamps[shard - from]);
+    }
+
+    private long[] readLock(int from, int to){
+        // Every reader has its own stamps, other readers can hold the same shards
+        long[] stamps = new long[to - from + 1];
+        for (int shard = from; shard <= to; shard++)
+            stamps[shard - from] = locks[shard].readLock();
+        return stamps;
+    }
+
+    private void unlockRead(int from, int to, long[] stamps){
+        for (int shard = to; shard >= from; shard--)
+            locks[shard].unlockRead(stamps[shard - from]);
+    }
+
+    private long optimisticCount(int from, int to, boolean range, int low, int high){
+        // count(low) or countRange(low, high) of the shards from..to without locking, -1 if a shard changed during the read
+        // Every stamp is checked after every shard is read, so all of them were unchanged at the moment the last stamp was taken
+        long[] stamps = new long[to - from + 1];
+        long sum = 0;
+        for (int shard = from; shard <= to; shard++){
+            long stamp = locks[shard].tryOptimisticRead();
+            if (stamp == 0) // Shard is being changed
+                return -1;
+            stamps[shard - from] = stamp;
+            long count = range ? shards.getShard(shard).tryCountRange(low, high) : shards.getShard(shard).tryCount(low);
+            if (count == -1)
+                return -1;
+            sum += count;
+        }
+        for (int shard = from; shard <= to; shard++)
+            if (!locks[shard].validate(stamps[shard - from]))
+                return -1;
+        return sum;
+    }
+
+    @Override
+    public void createParkingLot(int capacityConstraint, int truckLimit){
+        int shard = shards.shardOf(capacityConstraint);
+        long[] stamps = lock(shard, shard);
+        try{
+            super.createParkingLot(capacityConstraint, truckLimit);
+        }finally{
+            unlock(shard, shard, stamps);
+        }
+    }
+
+    @Override
+    public void createParkingLots(int[] operands){
+        // Only the shards between the smallest and the greatest capacityConstraint change
+        if (operands.length == 0)
+            return;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < operands.length; i += 2){
+            min = Math.min(min, operands[i]);
+            max = Math.max(max, operands[i]);
+        }
+        int from = shards.shardOf(min);
+        int to = shards.shardOf(max);
+        long[] stamps = lock(from, to);
+        try{
+            super.createParkingLots(operands);
+        }finally{
+            unlock(from, to, stamps);
+        }
+    }
+
+    @Override
+    public void deleteParkingLot(int capacityConstraint){
+        int shard = shards.shardOf(capacityConstraint);
+        long[] stamps = lock(shard, shard);
+        try{
+            super.deleteParkingLot(capacityConstraint);
+        }finally{
+            unlock(shard, shard, stamps);
+        }
+    }
+
+    @Override
+    public void addTruck(int truckID, int capacity, ResponseSink out){
+        // If the shard of capacity has a suitable parking lot, it is the greatest one and smaller shards do not matter
+        int shard = shards.shardOf(capacity);
+        long[] stamps = lock(shard, shard);
+        try{
+            if (shards.getShard(shard).findSmallerThan(capacity, ParkingLot.FREE) != null){
+                super.addTruck(truckID, capacity, out);
+                return;
+            }
+        }finally{
+            unlock(shard, shard, stamps);
+        }
+
+        // Otherwise every smaller shard is searched, the lock of shard was released so it must be searched again too
+        stamps = lock(0, shard);
+        try{
+            super.addTruck(truckID, capacity, out);
+        }finally{
+            unlock(0, shard, stamps);
+        }
+    }
+
+    @Override
+    public void ready(int capacityConstraint, ResponseSink out){
+        // Mirror of addTruck
+        int shard = shards.shardOf(capacityConstraint);
+        long[] stamps = lock(shard, shard);
+        try{
+            if (shards.getShard(shard).findGreaterThan(capacityConstraint, ParkingLot.WAITING) != null){
+                super.ready(capacityConstraint, out);
+                return;
+            }
+        }finally{
+            unlock(shard, shard, stamps);
+        }
+
+        stamps = lock(shard, last);
+        try{
+            super.ready(capacityConstraint, out);
+        }finally{
+            unlock(shard, last, stamps);
+        }
+    }
+
+    @Override
+    public void readyN(int capacityConstraint, int count, ResponseSink out){
+        // Trucks can be readied in every greater shard, so they are locked at once instead of trying the own shard first
+        int shard = shards.shardOf(capacityConstraint);
+        long[] stamps = lock(shard, last);
+        try{
+            super.readyN(capacityConstraint, count, out);
+        }finally{
+            unlock(shard, last, stamps);
+        }
+    }
+
+    @Override
+    public void load(int capacityConstraint, int loadAmount, ResponseSink out){
+        // Loads can visit every greater shard and loaded trucks can go to any shard, so every shard is locked
+        long[] stamps = lock(0, last);
+        try{
+            super.load(capacityConstraint, loadAmount, out);
+        }finally{
+            unlock(0, last, stamps);
+        }
+    }
+
+    @Override
+    public void locate(int truckID, ResponseSink out){
+        long[] stamps = readLock(0, last);
+        try{
+            super.locate(truckID, out);
+        }finally{
+            unlockRead(0, last, stamps);
+        }
+    }
+
+    @Override
+    public void removeTruck(int truckID, ResponseSink out){
+        long[] stamps = lock(0, last);
+        try{
+            super.removeTruck(truckID, out);
+        }finally{
+            unlock(0, last, stamps);
+        }
+    }
+
+    @Override
+    public void count(int capacity, ResponseSink out){
+        int shard = shards.shardOf(capacity);
+        for (int i = 0; i < OPTIMISTIC_TRIES; i++){
+            long count = optimisticCount(shard, last, false, capacity, 0);
+            if (count != -1){
+                out.value(count);
+                out.end();
+                return;
+            }
+        }
+
+        // Writers keep changing the shards, so they are read locked, other readers can still hold them too
+        long[] stamps = readLock(shard, last);
+        try{
+            super.count(capacity, out);
+        }finally{
+            unlockRead(shard, last, stamps);
+        }
+    }
+
+    @Override
+    public void countRange(int low, int high, ResponseSink out){
+        if (low > high){ // Empty range does not read any shard
+            super.countRange(low, high, out);
+            return;
+        }
+        int from = shards.shardOf(low);
+        int to = shards.shardOf(high);
+        for (int i = 0; i < OPTIMISTIC_TRIES; i++){
+            long count = optimisticCount(from, to, true, low, high);
+            if (count != -1){
+                out.value(count);
+                out.end();
+                return;
+            }
+        }
+
+        long[] stamps = readLock(from, to);
+        try{
+            super.countRange(low, high, out);
+        }finally{
+            unlockRead(from, to, stamps);
+        }
+    }
+
+    @Override
+    public void snapshot(Path path, ResponseSink out){
+        // Snapshot only reads, so counts can still run next to it
+        long[] stamps = readLock(0, last);
+        try{
+            super.snapshot(path, out);
+        }finally{
+            unlockRead(0, last, stamps);
+        }
+    }
+
+    @Override
+    public void open(TruckStore store){
+        // Store has a single location map, shards would change it at the same time
+        throw new UnsupportedOperationException("A truck store can not be used with shards");
+    }
+
+    @Override
+    public void fill(ParkingLot[] lots){
+        // restore fills the simulator through this
+        long[] stamps = lock(0, last);
+        try{
+            super.fill(lots);
+        }finally{
+            unlock(0, last, stamps);
+        }
+    }
+
+    @Override
+    public void stats(ResponseSink out){
+        long[] stamps = lock(0, last);
+        try{
+            super.stats(out);
+        }finally{
+            unlock(0, last, stamps);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+public class FleetClient {
+    // Load generator for a server started with Main -port, reports throughput and latency percentiles for every number of
+    // connections and pipeline depth
+    // Usage: java FleetClient <port> <input file> [connections] [depths] [seconds]
+    // Parking lots of create_parking_lot and create_parking_lots lines are created once on one connection, then every connection
+    // sends the other commands of the input file again and again, starting at different lines, delete_parking_lot and snapshot
+    // lines are skipped
+    // A connection keeps depth commands waiting for a response, a command's latency is from writing it to reading its response
+    // line, so with a deeper pipeline it includes the time spent behind the commands sent before it
+    // Server keeps its state between runs, so later runs see fuller parking lots
+
+    private static final int SETUP_BATCH = 1 << 16; // Bytes of setup lines written at once
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2){
+            System.out.println("Usage: java FleetClient <port> <input file> [connections] [depths] [seconds]");
+            return;
+        }
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]));
+        int[] connectionCounts = parseList(args.length > 2 ? args[2] : "1,4,16");
+        int[] depths = parseList(args.length > 3 ? args[3] : "1,16,256");
+        long nanos = (long) (Double.parseDouble(args.length > 4 ? args[4] : "3") * 1e9);
+
+        List<byte[]> setup = new ArrayList<>();
+        List<byte[]> commands = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get(args[1]), StandardCharsets.US_ASCII)){
+            String keyword = line.trim().split(" ", 2)[0];
+            byte[] bytes = (line + "\n").getBytes(StandardCharsets.US_ASCII);
+            switch (keyword){
+                case "create_parking_lot":
+                case "create_parking_lots":
+                    setup.add(bytes);
+                    break;
+                case "add_truck":
+                case "ready":
+                case "ready_n":
+                case "load":
+                case "count":
+                case "count_range":
+                case "locate":
+                case "remove_truck":
+                case "stats":
+                    commands.add(bytes);
+                    break;
+                default: // Commands without a response, snapshot writes files on the server
+                    break;
+            }
+        }
+        if (commands.isEmpty()){
+            System.out.println("Input file has no command with a response");
+            return;
+        }
+        createLots(address, setup);
+        byte[][] lines = commands.toArray(new byte[0][]);
+
+        System.out.printf("%-12s %8s %14s %10s %10s %10s %10s%n", "connections", "depth", "commands/s", "p50 (us)", "p99 (us)", "p999 (us)", "max (us)");
+        for (int connectionCount : connectionCounts){
+            for (int depth : depths){
+                Thread[] threads = new Thread[connectionCount];
+                LatencyHistogram[] histograms = new LatencyHistogram[connectionCount];
+                IOException[] errors = new IOException[connectionCount];
+                long start = System.nanoTime();
+                long deadline = start + nanos;
+                for (int i = 0; i < connectionCount; i++){
+                    int index = i;
+                    histograms[i] = new LatencyHistogram();
+                    threads[i] = new Thread(() -> {
+                        try{
+                            run(address, lines, (int) ((long) lines.length * index / connectionCount), depth, deadline, histograms[index]);
+                        }catch (IOException e){
+                            errors[index] = e;
+                        }
+                    });
+                    threads[i].start();
+                }
+                LatencyHistogram all = new LatencyHistogram();
+                for (int i = 0; i < connectionCount; i++){
+                    threads[i].join();
+                    if (errors[i] != null)
+                        throw errors[i];
+                    all.add(histograms[i]);
+                }
+                long elapsed = System.nanoTime() - start;
+                System.out.printf("%-12d %8d %,14.0f %,10.1f %,10.1f %,10.1f %,10.1f%n", connectionCount, depth, all.getCount() * 1e9 / elapsed,
+                        all.percentile(50) / 1e3, all.percentile(99) / 1e3, all.percentile(99.9) / 1e3, all.getMax() / 1e3);
+            }
+        }
+    }
+
+    private static int[] parseList(String list){
+        String[] parts = list.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++){
+            values[i] = Integer.parseInt(parts[i]);
+            if (values[i] < 1)
+                throw new IllegalArgumentException("Connections and depths must be positive");
+        }
+        return values;
+    }
+
+    private static void createLots(InetSocketAddress address, List<byte[]> setup) throws IOException {
+        // Sends the setup lines, then a count whose response means the server has run all of them
+        try (SocketChannel channel = SocketChannel.open(address)){
+            ByteBuffer buffer = ByteBuffer.allocate(SETUP_BATCH);
+            setup.add("count 0\n".getBytes(StandardCharsets.US_ASCII));
+            for (byte[] line : setup){
+                if (buffer.remaining() < line.length){
+                    buffer.flip();
+                    while (buffer.hasRemaining())
+                        channel.write(buffer);
+                    buffer = ByteBuffer.allocate(Math.max(SETUP_BATCH, line.length));
+                }
+                buffer.put(line);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            ByteBuffer response = ByteBuffer.allocate(64);
+            while (response.position() == 0 || response.get(response.position() - 1) != '\n')
+                if (channel.read(response) == -1)
+                    throw new IOException("Server closed the connection");
+        }
+    }
+
+    private static void run(InetSocketAddress address, byte[][] lines, int next, int depth, long deadline, LatencyHistogram histogram)
+            throws IOException {
+        // Keeps depth commands waiting until the deadline, then reads the responses of the ones still waiting
+        try (SocketChannel channel = SocketChannel.open(address)){
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            long[] sent = new long[depth]; // Write time of every waiting command, oldest at head
+            int head = 0;
+            int waiting = 0;
+            ByteBuffer output = ByteBuffer.allocate(1 << 16);
+            ByteBuffer input = ByteBuffer.allocate(1 << 16);
+            while (true){
+                long now = System.nanoTime();
+                if (now < deadline && waiting < depth){ // Fills the window with a single write
+                    if (output.capacity() < lines[next].length)
+                        output = ByteBuffer.allocate(lines[next].length);
+                    output.clear();
+                    int added = 0;
+                    while (waiting + added < depth && output.remaining() >= lines[next].length){
+                        output.put(lines[next]);
+                        next = next + 1 == lines.length ? 0 : next + 1;
+                        added++;
+                    }
+                    output.flip();
+                    while (output.hasRemaining())
+                        channel.write(output);
+                    now = System.nanoTime();
+                    for (int i = 0; i < added; i++)
+                        sent[(head + waiting + i) % depth] = now;
+                    waiting += added;
+                }
+                if (waiting == 0)
+                    return;
+                if (channel.read(input) == -1)
+                    throw new IOException("Server closed the connection");
+                now = System.nanoTime();
+                input.flip();
+                int lineStart = 0;
+                for (int i = 0; i < input.limit(); i++){
+                    if (input.get(i) != '\n')
+                        continue;
+                    histogram.record(now - sent[head]);
+                    head = head + 1 == depth ? 0 : head + 1;
+                    waiting--;
+                    lineStart = i + 1;
+                }
+                input.position(lineStart);
+                input.compact(); // Partial response line stays for the next read
+                if (!input.hasRemaining()) // Response line longer than the buffer, like a long load
+                    input = ByteBuffer.allocate(input.capacity() * 2).put(input.flip());
+            }
+        }
+    }
+}
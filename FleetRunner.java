@@ -0,0 +1,142 @@
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+public class FleetRunner {
+    // Runs many independent fleets in one JVM, every fleet is an input file and an output file like a run of Main
+    // Fleets share the JIT compiled code and run in parallel, each one on a virtual thread if the JVM has them
+    // Usage: java FleetRunner [-threads n] [Main options] <manifest file> | <input directory> <output directory>
+    //   A manifest has an input file and an output file on every line, relative paths are relative to the manifest
+    //   With directories, every file of the input directory is a fleet and its output has the same name in the output directory
+    //   -threads n  fleets running at the same time, carrier threads of virtual threads (number of cores by default)
+
+    private static boolean virtualThreads; // Whether fleets run on virtual threads
+
+    private static final String USAGE = "Usage: java FleetRunner [-threads n] [Main options] <manifest file> | <input directory> <output directory>";
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<String> mainArgs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++){
+            if (args[i].equals("-threads") && i + 1 < args.length)
+                threads = Integer.parseInt(args[++i]);
+            else
+                mainArgs.add(args[i]);
+        }
+
+        Options options;
+        List<Path[]> fleets;
+        try{
+            options = Options.parse(mainArgs.toArray(new String[0]), false);
+            if (options.statsFile != null) // Stats counters are static, fleets running together would mix them up
+                throw new IllegalArgumentException("-stats can not be used with several fleets");
+            if (options.storeFile != null) // Every fleet would continue from the same file
+                throw new IllegalArgumentException("-store can not be used with several fleets");
+            if (options.journalFile != null) // Every fleet would append to and replay the same journal
+                throw new IllegalArgumentException("-journal can not be used with several fleets");
+            if (options.port != -1)
+                throw new IllegalArgumentException("-port can not be used with several fleets");
+            fleets = findFleets(Paths.get(options.inputFile), options.outputFile == null ? null : Paths.get(options.outputFile));
+        }catch (IllegalArgumentException e){
+            System.out.println(e.getMessage());
+            System.out.println(USAGE);
+            return;
+        }
+
+        ExecutorService executor = createExecutor(threads);
+        long start = System.nanoTime();
+        List<Future<Long>> results = new ArrayList<>();
+        for (Path[] fleet : fleets)
+            results.add(executor.submit(() -> runFleet(options, fleet[0], fleet[1])));
+        executor.shutdown();
+
+        // Results are reported in the order of the fleets, after every fleet before them has finished
+        long total = 0;
+        int failed = 0;
+        System.out.printf("%-40s %12s%n", "fleet", "time (ms)");
+        for (int i = 0; i < fleets.size(); i++){
+            String name = fleets.get(i)[0].toString();
+            try{
+                long nanos = results.get(i).get();
+                total += nanos;
+                System.out.printf("%-40s %,12.1f%n", name, nanos / 1e6);
+            }catch (ExecutionException e){
+                failed++;
+                System.out.printf("%-40s %12s %s%n", name, "failed", e.getCause());
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%d fleets, %d failed, %.3f s wall time, %.3f s fleet time, %d %s%n",
+                fleets.size(), failed, elapsed / 1e9, total / 1e9, threads, virtualThreads ? "carrier threads" : "threads");
+    }
+
+    private static long runFleet(Options options, Path inputFile, Path outputFile) throws IOException {
+        // Same as a run of Main, returns the time it took in nanoseconds
+        long start = System.nanoTime();
+        try (FileChannel input = FileChannel.open(inputFile, StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(outputFile, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)){
+            Main.run(options, input, output);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static List<Path[]> findFleets(Path input, Path outputDirectory) throws IOException {
+        // Input and output file of every fleet
+        List<Path[]> fleets = new ArrayList<>();
+        if (Files.isDirectory(input)){
+            if (outputDirectory == null)
+                throw new IllegalArgumentException("Expected an output directory");
+            Files.createDirectories(outputDirectory);
+            try (Stream<Path> files = Files.list(input)){
+                files.filter(Files::isRegularFile).sorted()
+                        .forEach(file -> fleets.add(new Path[]{file, outputDirectory.resolve(file.getFileName())}));
+            }
+            return fleets;
+        }
+        if (outputDirectory != null)
+            throw new IllegalArgumentException("A manifest does not take an output directory");
+
+        Path base = input.toAbsolutePath().getParent();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(input)){
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) // Comments and empty lines
+                continue;
+            String[] files = line.split("\\s+");
+            if (files.length != 2)
+                throw new IllegalArgumentException("Expected an input and an output file in line " + lineNumber + " of the manifest");
+            fleets.add(new Path[]{base.resolve(files[0]), base.resolve(files[1])});
+        }
+        return fleets;
+    }
+
+    private static ExecutorService createExecutor(int threads){
+        // Virtual thread per fleet with at most threads carrier threads on Java 21 and later, a pool of threads before that
+        // Virtual threads are found with reflection so that this also compiles and runs on Java 17
+        if (System.getProperty("jdk.virtualThreadScheduler.parallelism") == null){ // Read when the first virtual thread starts
+            System.setProperty("jdk.virtualThreadScheduler.parallelism", Integer.toString(threads));
+            System.setProperty("jdk.virtualThreadScheduler.maxPoolSize", Integer.toString(threads));
+        }
+        try{
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ExecutorService executor = (ExecutorService) method.invoke(null);
+            virtualThreads = true;
+            return executor;
+        }catch (ReflectiveOperationException | UnsupportedOperationException e){
+            // No virtual threads, or they are a preview feature that is not enabled
+            return Executors.newFixedThreadPool(threads);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.function.Function;
+
+public class FleetServer {
+    // Serves the commands of many TCP connections on a single thread with a Selector, so the simulator is never shared by threads
+    // Clients can pipeline, they send many commands before reading any response, and a packet can hold many commands
+    // Every read of a connection is parsed up to its last complete command at once, a partial command waits for the rest of it
+    // A connection sends text lines or the binary format of BinaryCommandParser, starting with its header, and gets its responses
+    // in the same format
+    // Commands run in the order their reads arrived, so responses of a connection are in the order of its commands
+    // Every read ready at a select is parsed first, then the journal is committed once and only then are the responses sent, so a
+    // client never sees the response of a command that could still be lost, and the commands of a select share one group
+    // Responses are formatted by a ResponseWriter into pooled direct buffers and sent with one gathering write per
+    // connection, a connection whose client does not read stops being read once MAX_PENDING buffers wait for it
+    // A command that fails closes only its own connection, its responses that were not sent yet are dropped
+    // Listens on the loopback address only, there is no authentication
+    // Runs until the process is stopped, a shutdown hook ends the loop so Main can still close the journal and the store
+
+    private static final int READ_SIZE = 1 << 16; // Bytes read from a connection at once
+    private static final int MAX_COMMAND = 1 << 20; // Longer partial command closes its connection, lists of parking lots are far shorter
+    private static final int OUTPUT_SIZE = 1 << 16; // Size of a pooled output buffer
+    private static final int MAX_PENDING = 64; // Output buffers of a connection before it is not read anymore
+
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final Function<ResponseSink, CommandHandler> simulator;
+    private final Journal journal; // Null without -journal
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_SIZE); // Shared, a read is parsed before the next one
+    private final ArrayDeque<ByteBuffer> pool = new ArrayDeque<>(); // Empty output buffers
+    private final ArrayList<Connection> read = new ArrayList<>(); // Connections read at the current select, their responses wait
+    private volatile boolean running = true;
+
+    private FleetServer(int port, Function<ResponseSink, CommandHandler> simulator, Journal journal) throws IOException {
+        this.simulator = simulator;
+        this.journal = journal;
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public static void serve(int port, Function<ResponseSink, CommandHandler> simulator, Journal journal) throws IOException {
+        // Accepts connections on the port, 0 picks a free one, and runs their commands until the process is stopped
+        // Every connection gets the handler simulator returns for its own response sink, journal is the one the simulator
+        // appends to or null
+        FleetServer fleetServer = new FleetServer(port, simulator, journal);
+        Thread loop = Thread.currentThread();
+        Thread hook = new Thread(() -> {
+            fleetServer.running = false;
+            fleetServer.selector.wakeup();
+            try{
+                loop.join(); // Main closes the journal and the store after serve returns
+            }catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(hook);
+        System.out.println("Listening on port " + ((InetSocketAddress) fleetServer.server.getLocalAddress()).getPort());
+        try{
+            fleetServer.run();
+        }finally{
+            fleetServer.close();
+            try{
+                Runtime.getRuntime().removeShutdownHook(hook); // So the process can exit without waiting for this thread
+            }catch (IllegalStateException e){
+                // Process is already shutting down, the hook waits until main ends
+            }
+        }
+    }
+
+    private void run() throws IOException {
+        while (running){
+            selector.select();
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()){
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (!key.isValid())
+                    continue;
+                if (key.isAcceptable()){
+                    accept();
+                    continue;
+                }
+                Connection connection = (Connection) key.attachment();
+                try{
+                    if (key.isReadable()){
+                        connection.read();
+                        read.add(connection);
+                    }
+                    else if (key.isWritable())
+                        connection.write();
+                }catch (IOException e){ // Broken connection or a command that can not be parsed, other connections go on
+                    System.out.println("Closed connection " + connection.address + ": " + e.getMessage());
+                    connection.close();
+                }catch (ShadowMismatchException e){ // Shadow index differs (see ShadowHandler), the server stops like a file run
+                    throw e;
+                }catch (RuntimeException e){ // Command failed, only its connection is closed and the others go on
+                    System.out.println("Closed connection " + connection.address + ": " + e);
+                    connection.close();
+                }
+            }
+            if (read.isEmpty())
+                continue;
+            if (journal != null) // A failed commit stops the server, the responses of the group are never sent
+                journal.commit();
+            for (Connection connection : read){
+                try{
+                    connection.send();
+                }catch (IOException e){
+                    System.out.println("Closed connection " + connection.address + ": " + e.getMessage());
+                    connection.close();
+                }
+            }
+            read.clear();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel socket = server.accept();
+        if (socket == null)
+            return;
+        socket.configureBlocking(false);
+        socket.setOption(StandardSocketOptions.TCP_NODELAY, true); // Responses are already batched per read
+        Connection connection = new Connection(socket);
+        connection.key = socket.register(selector, SelectionKey.OP_READ, connection);
+    }
+
+    private void close() throws IOException {
+        // Connections are closed without sending responses that still wait
+        for (SelectionKey key : selector.keys())
+            key.channel().close();
+        selector.close();
+    }
+
+    private class Connection implements WritableByteChannel {
+        // Input of a client, its parser and handler, and the responses that were not sent yet
+        // ResponseWriter writes to the connection itself, which copies the bytes into the pending buffers
+
+        private final SocketChannel socket;
+        private final String address;
+        private SelectionKey key;
+        private byte[] input = new byte[2 * READ_SIZE]; // Partial line of the last read, then the bytes of the next read
+        private int inputEnd;
+        private CommandSource parser; // Parser, writer and handler of the format of the connection, null until it is known
+        private ResponseWriter writer;
+        private CommandHandler handler;
+        private ByteBuffer[] pending = new ByteBuffer[4]; // Output in read mode, only the last one can still be filled
+        private int pendingCount;
+        private boolean ended; // Client closed its side, the connection is closed once every response is sent
+
+        Connection(SocketChannel socket) throws IOException {
+            this.socket = socket;
+            address = String.valueOf(socket.getRemoteAddress());
+        }
+
+        void read() throws IOException {
+            if (input.length - inputEnd < READ_SIZE){
+                if (inputEnd > MAX_COMMAND)
+                    throw new IOException("Command longer than " + MAX_COMMAND + " bytes");
+                input = Arrays.copyOf(input, input.length * 2);
+            }
+            readBuffer.clear();
+            int read = socket.read(readBuffer);
+            if (read == -1)
+                ended = true;
+            else{
+                readBuffer.flip();
+                readBuffer.get(input, inputEnd, read);
+                inputEnd += read;
+            }
+            if (parser != null || chooseFormat()){
+                // At the end of the input the last text line does not need a line end, like at the end of an input file
+                int parsed = parser.parse(input, 0, inputEnd, ended, handler);
+                System.arraycopy(input, parsed, input, 0, inputEnd - parsed);
+                inputEnd -= parsed;
+            }
+        }
+
+        void send() throws IOException {
+            // Sends the responses of the last read, called once the journal has its commands
+            if (!socket.isOpen())
+                return;
+            if (writer != null)
+                writer.flush();
+            write();
+        }
+
+        private boolean chooseFormat(){
+            // Binary connections start with the magic number of the binary command format, any other input is text
+            // Returns false if too few bytes arrived to tell, a text line shorter than the magic number is text
+            boolean binary = inputEnd >= 4
+                    && ((input[0] & 0xFF) | (input[1] & 0xFF) << 8 | (input[2] & 0xFF) << 16 | (input[3] & 0xFF) << 24) == BinaryCommandParser.MAGIC;
+            if (!binary && inputEnd < 4 && !ended){
+                int i = 0;
+                while (i < inputEnd && input[i] != '\n')
+                    i++;
+                if (i == inputEnd)
+                    return false;
+            }
+            parser = binary ? new BinaryCommandParser() : new CommandParser();
+            writer = binary ? new BinaryResponseWriter(this) : new ChannelResponseWriter(this);
+            handler = simulator.apply(writer);
+            return true;
+        }
+
+        @Override
+        public int write(ByteBuffer source){
+            // Called by the writer when it flushes, appends to the last pending buffer and takes new ones from the pool
+            int written = source.remaining();
+            while (source.hasRemaining()){
+                ByteBuffer last = pendingCount == 0 ? null : pending[pendingCount - 1];
+                if (last == null || last.limit() == last.capacity()){
+                    last = pool.isEmpty() ? ByteBuffer.allocateDirect(OUTPUT_SIZE) : pool.pop();
+                    last.limit(0);
+                    if (pendingCount == pending.length)
+                        pending = Arrays.copyOf(pending, pendingCount * 2);
+                    pending[pendingCount++] = last;
+                }
+                int position = last.position(); // Appends after the limit, then makes the new bytes readable
+                int count = Math.min(source.remaining(), last.capacity() - last.limit());
+                last.position(last.limit()).limit(last.limit() + count);
+                ByteBuffer slice = source.slice();
+                slice.limit(count);
+                last.put(slice);
+                source.position(source.position() + count);
+                last.position(position);
+            }
+            return written;
+        }
+
+        void write() throws IOException {
+            // Sends as much of the pending output as the socket takes in one gathering write and chooses what to wait for
+            if (pendingCount > 0)
+                socket.write(pending, 0, pendingCount);
+            int sent = 0;
+            while (sent < pendingCount && !pending[sent].hasRemaining()){
+                pending[sent].clear();
+                pool.push(pending[sent]);
+                sent++;
+            }
+            System.arraycopy(pending, sent, pending, 0, pendingCount - sent);
+            Arrays.fill(pending, pendingCount - sent, pendingCount, null);
+            pendingCount -= sent;
+
+            if (ended && pendingCount == 0){
+                close();
+                return;
+            }
+            int ops = pendingCount > 0 ? SelectionKey.OP_WRITE : 0;
+            if (!ended && pendingCount <= MAX_PENDING)
+                ops |= SelectionKey.OP_READ;
+            key.interestOps(ops);
+        }
+
+        @Override
+        public boolean isOpen(){
+            return socket.isOpen();
+        }
+
+        @Override
+        public void close(){
+            for (int i = 0; i < pendingCount; i++){
+                pending[i].clear();
+                pool.push(pending[i]);
+            }
+            pendingCount = 0;
+            key.cancel();
+            try{
+                socket.close();
+            }catch (IOException e){
+                // Nothing left to send or read
+            }
+        }
+    }
+}
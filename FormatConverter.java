@@ -0,0 +1,101 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class FormatConverter {
+    // Converts a command file or a response file between the text format and the binary one, see BinaryCommandParser and
+    // BinaryResponseWriter, the direction is found from the first bytes of the input
+    // Usage: java FormatConverter [-responses] <input file> <output file>
+    // Unknown text command lines are dropped, since Main ignores them anyway
+    // A text response item with one number becomes a value, one with two numbers a pair and any other one a text, the same
+    // items Main writes, so converting the output of Main gives the output of Main with the other format
+
+    private static final String USAGE = "Usage: java FormatConverter [-responses] <input file> <output file>";
+
+    public static void main(String[] args) throws IOException {
+        boolean responses = args.length == 3 && args[0].equals("-responses");
+        if (args.length != (responses ? 3 : 2)){
+            System.out.println(USAGE);
+            return;
+        }
+        Path inputFile = Paths.get(args[args.length - 2]);
+        Path outputFile = Paths.get(args[args.length - 1]);
+
+        long start = System.nanoTime();
+        boolean binary;
+        try (FileChannel input = FileChannel.open(inputFile, StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(outputFile, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)){
+            binary = startsWith(input, responses ? BinaryResponseWriter.MAGIC : BinaryCommandParser.MAGIC);
+            if (responses && binary){
+                ChannelResponseWriter out = new ChannelResponseWriter(output);
+                new BinaryResponseReader(input).copyTo(out);
+                out.flush();
+            }
+            else if (responses){
+                BinaryResponseWriter out = new BinaryResponseWriter(output);
+                parseResponses(Channels.newReader(input, StandardCharsets.US_ASCII), out);
+                out.flush();
+            }
+            else if (binary){
+                TextCommandWriter out = new TextCommandWriter(output);
+                new BinaryCommandParser(input).parse(out);
+                out.flush();
+            }
+            else{
+                BinaryCommandWriter out = new BinaryCommandWriter(output);
+                new CommandParser(input).parse(out);
+                out.flush();
+            }
+        }
+        System.out.printf("%s to %s: %,d bytes to %,d bytes in %.1f ms%n", binary ? "binary" : "text", binary ? "text" : "binary",
+                Files.size(inputFile), Files.size(outputFile), (System.nanoTime() - start) / 1e6);
+    }
+
+    private static boolean startsWith(FileChannel input, int magic) throws IOException {
+        // Whether the file starts with the magic number, the channel is read from the start afterwards
+        ByteBuffer first = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        while (first.hasRemaining() && input.read(first) != -1);
+        input.position(0);
+        return first.position() == 4 && first.getInt(0) == magic;
+    }
+
+    private static void parseResponses(Reader reader, ResponseSink out) throws IOException {
+        // Items of every text line, separated by " - "
+        BufferedReader lines = new BufferedReader(reader, 1 << 16);
+        String line;
+        while ((line = lines.readLine()) != null){
+            if (!line.isEmpty())
+                for (String item : line.split(" - "))
+                    parseItem(item, out);
+            out.end();
+        }
+    }
+
+    private static void parseItem(String item, ResponseSink out){
+        int space = item.indexOf(' ');
+        try{
+            if (space == -1){
+                out.value(Long.parseLong(item));
+                return;
+            }
+            if (item.indexOf(' ', space + 1) == -1){
+                int first = Integer.parseInt(item, 0, space, 10);
+                int second = Integer.parseInt(item, space + 1, item.length(), 10);
+                out.pair(first, second);
+                return;
+            }
+        }catch (NumberFormatException e){
+            // Not numbers, like the section of a locate response
+        }
+        out.text(item);
+    }
+}
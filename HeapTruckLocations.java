@@ -0,0 +1,101 @@
+public class HeapTruckLocations implements TruckLocations {
+    // TruckLocations in arrays on the heap
+    // Open addressing with linear probing in parallel arrays, nothing is boxed and a lookup reads a few neighbouring slots
+    // Removed entries are filled by shifting the following entries of their probe run back, so no deleted markers are needed
+    // Truck IDs are unique, a second truck with the same ID replaces the first one in the map
+
+    private static final int INITIAL_LENGTH = 16;
+
+    private int[] ids = new int[INITIAL_LENGTH];
+    private ParkingLot[] lots = new ParkingLot[INITIAL_LENGTH]; // null for an empty slot
+    private byte[] sections = new byte[INITIAL_LENGTH]; // ParkingLot.WAITING or ParkingLot.READY
+    private int[] sequences = new int[INITIAL_LENGTH]; // Sequence number in the section, see MyQueue
+    private int size;
+    private int mask = INITIAL_LENGTH - 1; // Length of the arrays is a power of two, at most half of the slots are used
+
+    private int slotOf(int truckID){
+        // Fibonacci hashing, consecutive IDs are spread over the whole table, high bits are folded into the low ones the mask keeps
+        int hash = truckID * 0x9E3779B9;
+        return (hash ^ hash >>> 16) & mask;
+    }
+
+    public int find(int truckID){
+        // Slot of the truck, or -1 if it is not in the map
+        for (int slot = slotOf(truckID); lots[slot] != null; slot = (slot + 1) & mask)
+            if (ids[slot] == truckID)
+                return slot;
+        return -1;
+    }
+
+    // Values of a slot returned by find
+    public ParkingLot getLot(int slot){
+        return lots[slot];
+    }
+
+    public int getSection(int slot){
+        return sections[slot];
+    }
+
+    public int getSequence(int slot){
+        return sequences[slot];
+    }
+
+    public void put(int truckID, ParkingLot p, int section, int sequence){
+        int slot = slotOf(truckID);
+        while (lots[slot] != null && ids[slot] != truckID)
+            slot = (slot + 1) & mask;
+        if (lots[slot] == null){
+            if (2 * (size + 1) > lots.length){
+                grow();
+                put(truckID, p, section, sequence);
+                return;
+            }
+            size++;
+        }
+        ids[slot] = truckID;
+        lots[slot] = p;
+        sections[slot] = (byte) section;
+        sequences[slot] = sequence;
+    }
+
+    public void remove(int truckID){
+        int slot = find(truckID);
+        if (slot == -1)
+            return;
+        // Entries after the slot are moved back into it if their own slot is not between the hole and them
+        int hole = slot;
+        for (int next = (hole + 1) & mask; lots[next] != null; next = (next + 1) & mask){
+            int home = slotOf(ids[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)){
+                ids[hole] = ids[next];
+                lots[hole] = lots[next];
+                sections[hole] = sections[next];
+                sequences[hole] = sequences[next];
+                hole = next;
+            }
+        }
+        lots[hole] = null;
+        size--;
+    }
+
+    private void grow(){
+        int[] oldIds = ids;
+        ParkingLot[] oldLots = lots;
+        byte[] oldSections = sections;
+        int[] oldSequences = sequences;
+        int length = oldLots.length * 2;
+        ids = new int[length];
+        lots = new ParkingLot[length];
+        sections = new byte[length];
+        sequences = new int[length];
+        mask = length - 1;
+        size = 0;
+        for (int i = 0; i < oldLots.length; i++)
+            if (oldLots[i] != null)
+                put(oldIds[i], oldLots[i], oldSections[i], oldSequences[i]);
+    }
+
+    public int getSize(){
+        return size;
+    }
+}
@@ -0,0 +1,130 @@
+import java.util.Arrays;
+
+public class HierarchicalBitset {
+    // Set of integers in [0, universe) stored as 64-ary tree of bits
+    // Level 0 has one bit per element, bit i of level k+1 is set if word i of level k is not zero
+    // So successor and predecessor searches look at one word per level, which is log64(universe) words
+
+    private final long[][] levels;
+    private final int universe;
+
+    HierarchicalBitset(int universe){
+        this.universe = universe;
+        int levelCount = 0;
+        long n = universe;
+        do { // Count the levels first, top level always has a single word
+            n = (n + 63) >>> 6;
+            levelCount++;
+        } while (n > 1);
+
+        levels = new long[levelCount][];
+        n = universe;
+        for (int l = 0; l < levelCount; l++){
+            n = (n + 63) >>> 6;
+            levels[l] = new long[(int) n];
+        }
+    }
+
+    public boolean contains(int i){
+        return (levels[0][i >>> 6] & (1L << i)) != 0;
+    }
+
+    public void add(int i){
+        for (long[] level : levels){
+            int word = i >>> 6;
+            boolean wasEmpty = level[word] == 0;
+            level[word] |= 1L << i; // Shift uses only the lowest 6 bits of i
+            if (!wasEmpty) // Upper levels already know this word is not empty
+                return;
+            i = word;
+        }
+    }
+
+    public void remove(int i){
+        for (long[] level : levels){
+            int word = i >>> 6;
+            level[word] &= ~(1L << i);
+            if (level[word] != 0) // Word still has elements, upper levels stay the same
+                return;
+            i = word;
+        }
+    }
+
+    public void clearFrom(int i){
+        // Removes every element greater than or equal to i
+        for (long[] level : levels){
+            int word = i >>> 6;
+            if (word >= level.length)
+                return;
+            level[word] &= ~(-1L << i); // Keeps the bits below i, all of them are cleared if i is at the start of the word
+            Arrays.fill(level, word + 1, level.length, 0);
+            i = level[word] != 0 ? word + 1 : word; // Bit of the word in the upper level stays only if the word is not empty
+        }
+    }
+
+    public int getUniverse(){
+        return universe;
+    }
+
+    public int next(int i){
+        // Smallest element greater than or equal to i, -1 if there is none
+        if (i < 0)
+            i = 0;
+        if (i >= universe)
+            return -1;
+
+        // Go up until a word with a set bit at or after i is found
+        int l = 0;
+        while (true){
+            int word = i >>> 6;
+            if (word >= levels[l].length)
+                return -1;
+            long bits = levels[l][word] & (-1L << i);
+            if (bits != 0){
+                i = (word << 6) + Long.numberOfTrailingZeros(bits);
+                break;
+            }
+            i = word + 1; // Next word of this level is the next bit of the upper level
+            l++;
+            if (l == levels.length)
+                return -1;
+        }
+
+        // Go down taking the smallest set bit of every word
+        while (l > 0){
+            l--;
+            i = (i << 6) + Long.numberOfTrailingZeros(levels[l][i]);
+        }
+        return i;
+    }
+
+    public int previous(int i){
+        // Greatest element less than or equal to i, -1 if there is none
+        if (i >= universe)
+            i = universe - 1;
+
+        // Go up until a word with a set bit at or before i is found
+        int l = 0;
+        while (true){
+            if (i < 0)
+                return -1;
+            int word = i >>> 6;
+            long bits = levels[l][word] & (-1L >>> (63 - (i & 63)));
+            if (bits != 0){
+                i = (word << 6) + 63 - Long.numberOfLeadingZeros(bits);
+                break;
+            }
+            i = word - 1; // Previous word of this level is the previous bit of the upper level
+            l++;
+            if (l == levels.length)
+                return -1;
+        }
+
+        // Go down taking the greatest set bit of every word
+        while (l > 0){
+            l--;
+            i = (i << 6) + 63 - Long.numberOfLeadingZeros(levels[l][i]);
+        }
+        return i;
+    }
+}
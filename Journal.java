@@ -0,0 +1,220 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+public class Journal implements Closeable {
+    // Write-ahead journal of the commands that change a simulator, every command is appended before it is applied
+    // Records are collected into a group that is written and forced to disk at once when it reaches groupBytes or when groupMillis
+    // have passed since its first record, so a crash loses at most the last group and most commands do not wait for the disk
+    // Age is checked by every append and by a timer thread, so the last group is committed in time even if no command follows it
+    // File: MAGIC, VERSION, sequence number of the first record (long), then the groups, every number is little endian
+    // Group: byte length of its records, CRC32 of the records, records, a record is the command code (byte) and two int operands
+    // A crash in the middle of a write leaves a cut group or one whose CRC does not match, it is truncated when the journal is opened
+
+    private static final int MAGIC = 0x4A4C5446; // "FTLJ" in little endian bytes
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int GROUP_HEADER_SIZE = 8;
+    private static final int RECORD_SIZE = 9;
+
+    private final FileChannel channel;
+    private final int groupBytes;
+    private final long groupNanos;
+    private final ByteBuffer group; // Group being collected, records start after the space of the group header
+    private final CRC32 crc = new CRC32();
+    private long groupStart; // System.nanoTime of the first record of the current group
+
+    private long firstSequence; // Sequence number of the first record in the file
+    private long sequence; // Sequence number of the next record, the number of commands since the simulator was empty
+    private long commits; // Groups forced to disk since the journal was opened
+
+    private Thread timer; // Commits groups that are groupMillis old, started with the first group
+    private IOException failure; // Failed commit of the timer, every later append and commit throws it
+    private boolean closed;
+
+    Journal(Path path, int groupBytes, long groupMillis) throws IOException {
+        // Opens or creates the journal, a torn group at the end is truncated and new records are appended after the last whole one
+        this.groupBytes = groupBytes;
+        this.groupNanos = groupMillis * 1_000_000;
+        group = ByteBuffer.allocateDirect(GROUP_HEADER_SIZE + Math.max(groupBytes, 0) + RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        group.position(GROUP_HEADER_SIZE);
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+
+        if (channel.size() < HEADER_SIZE){ // New journal, or one whose header was never completely written
+            reset(0);
+            return;
+        }
+        ByteBuffer header = read(0, HEADER_SIZE);
+        if (header.getInt() != MAGIC || header.getInt() != VERSION){
+            channel.close();
+            throw new IOException(path + " is not a journal");
+        }
+        firstSequence = header.getLong();
+
+        long end = scan(null, 0); // Position after the last whole group
+        if (end < channel.size()){
+            channel.truncate(end);
+            channel.force(true);
+        }
+        channel.position(end);
+    }
+
+    public long getSequence(){
+        return sequence;
+    }
+
+    public long getCommits(){
+        return commits;
+    }
+
+    public void replay(TruckSimulator simulator, long from) throws IOException {
+        // Applies every record with sequence number >= from, from is the sequence number of the snapshot the simulator was restored from
+        // Must be called before anything is appended, responses are thrown away
+        long last = sequence;
+        if (firstSequence == last && from >= firstSequence){ // Empty journal, it simply continues after the snapshot
+            reset(from);
+            return;
+        }
+        if (from < firstSequence || from > last)
+            throw new IOException("Journal has commands " + firstSequence + " to " + last + ", it can not continue from command " + from);
+        CommandHandler handler = Main.simulate(simulator, new NullResponseSink());
+        scan(handler, from);
+    }
+
+    private long scan(CommandHandler handler, long from) throws IOException {
+        // Walks every whole group and returns the position after the last one, sequence is set to the sequence after it
+        // If handler is not null, records with sequence number >= from are sent to it
+        long position = HEADER_SIZE;
+        long size = channel.size();
+        sequence = firstSequence;
+        while (position + GROUP_HEADER_SIZE <= size){
+            ByteBuffer header = read(position, GROUP_HEADER_SIZE);
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length <= 0 || length % RECORD_SIZE != 0 || position + GROUP_HEADER_SIZE + length > size)
+                break; // Group was cut by a crash
+            ByteBuffer records = read(position + GROUP_HEADER_SIZE, length);
+            crc.reset();
+            crc.update(records);
+            if ((int) crc.getValue() != checksum)
+                break; // Some bytes of the group never reached the disk
+            records.rewind();
+            while (records.hasRemaining()){
+                int command = records.get();
+                int first = records.getInt();
+                int second = records.getInt();
+                if (handler != null && sequence >= from)
+                    handler.handle(command, first, second, null);
+                sequence++;
+            }
+            position += GROUP_HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining())
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new IOException("Journal ended while reading it");
+        buffer.flip();
+        return buffer;
+    }
+
+    public synchronized void append(int command, int first, int second) throws IOException {
+        // Adds the record to the current group, the group is committed if it is large or old enough
+        if (failure != null)
+            throw failure;
+        if (group.position() == GROUP_HEADER_SIZE){
+            groupStart = System.nanoTime();
+            if (timer == null && groupNanos > 0)
+                startTimer();
+            notifyAll(); // Timer waits for a group
+        }
+        group.put((byte) command).putInt(first).putInt(second);
+        sequence++;
+        if (group.position() - GROUP_HEADER_SIZE >= groupBytes || System.nanoTime() - groupStart >= groupNanos)
+            commit();
+    }
+
+    public synchronized void commit() throws IOException {
+        // Writes the current group and forces it to disk, every appended record is durable afterwards
+        if (failure != null) // A group was partly written, later ones would follow it in the file
+            throw failure;
+        int length = group.position() - GROUP_HEADER_SIZE;
+        if (length == 0)
+            return;
+        group.flip();
+        group.position(GROUP_HEADER_SIZE);
+        crc.reset();
+        crc.update(group);
+        group.putInt(0, length).putInt(4, (int) crc.getValue());
+        group.position(0);
+        while (group.hasRemaining())
+            channel.write(group);
+        channel.force(false);
+        commits++;
+        group.clear().position(GROUP_HEADER_SIZE);
+    }
+
+    private void startTimer(){
+        timer = new Thread(this::commitOldGroups, "journal-timer");
+        timer.setDaemon(true);
+        timer.start();
+    }
+
+    private synchronized void commitOldGroups(){
+        // Runs on the timer thread until the journal is closed, waits while the group is empty or younger than groupMillis
+        try{
+            while (!closed){
+                long age = System.nanoTime() - groupStart;
+                if (group.position() == GROUP_HEADER_SIZE)
+                    wait();
+                else if (age < groupNanos)
+                    TimeUnit.NANOSECONDS.timedWait(this, groupNanos - age);
+                else
+                    commit();
+            }
+        }catch (IOException e){
+            failure = e;
+        }catch (InterruptedException e){
+            // Not interrupted by anything, append and close still commit
+        }
+    }
+
+    public synchronized void checkpoint(long sequence) throws IOException {
+        // Called after a snapshot with this sequence number is safely on disk, records before it are not needed anymore
+        commit();
+        reset(sequence);
+    }
+
+    private void reset(long sequence) throws IOException {
+        // Empties the file and starts it with a header for records from sequence on
+        channel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putLong(sequence).flip();
+        while (header.hasRemaining())
+            channel.write(header, header.position());
+        channel.force(true);
+        channel.position(HEADER_SIZE);
+        firstSequence = sequence;
+        this.sequence = sequence;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        notifyAll(); // Ends the timer
+        try{
+            commit();
+        }finally{
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class JournalBenchmark {
+    // Runs a command file with and without a journal and reports what journaling costs for different group sizes
+    // Usage: java JournalBenchmark <input file> [group sizes in bytes separated by commas] [rounds]
+    // Journal is written next to the input file, so it is forced to the same disk, "none" runs without a journal
+    // Commands are parsed into memory once, so only simulating and journaling are measured
+
+    private static final long GROUP_MILLIS = 1000; // Long enough that groups are committed by size
+
+    private static int[] commands = new int[1024];
+    private static int[] firsts = new int[1024];
+    private static int[] seconds = new int[1024];
+    private static int size;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0){
+            System.out.println("Usage: java JournalBenchmark <input file> [group sizes in bytes separated by commas] [rounds]");
+            return;
+        }
+        Path inputFile = Paths.get(args[0]);
+        String[] groups = (args.length > 1 ? args[1] : "none,0,512,4096,65536,1048576").split(",");
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        Path journalFile = inputFile.resolveSibling(inputFile.getFileName() + ".journal");
+
+        try (FileChannel input = FileChannel.open(inputFile, StandardOpenOption.READ)){
+            new CommandParser(input).parse((command, first, second, text) -> {
+                if (size == commands.length){
+                    commands = Arrays.copyOf(commands, size * 2);
+                    firsts = Arrays.copyOf(firsts, size * 2);
+                    seconds = Arrays.copyOf(seconds, size * 2);
+                }
+                commands[size] = command;
+                firsts[size] = first;
+                seconds[size] = second;
+                size++;
+            });
+        }
+
+        System.out.printf("%-12s %16s %10s %14s%n", "group bytes", "commands/s", "forces", "commands/force");
+        for (int round = 0; round < rounds; round++){ // First round also warms up the JIT
+            for (String group : groups){
+                Files.deleteIfExists(journalFile);
+                TruckSimulator simulator = new TruckSimulator();
+                Journal journal = null;
+                if (!group.equals("none")){
+                    journal = new Journal(journalFile, Integer.parseInt(group), GROUP_MILLIS);
+                    simulator.setJournal(journal);
+                }
+                CommandHandler handler = Main.simulate(simulator, new NullResponseSink());
+
+                long start = System.nanoTime();
+                for (int i = 0; i < size; i++)
+                    handler.handle(commands[i], firsts[i], seconds[i], null);
+                if (journal != null)
+                    journal.close();
+                long elapsed = System.nanoTime() - start;
+
+                long forces = journal == null ? 0 : journal.getCommits();
+                System.out.printf("%-12s %,16.0f %,10d %,14.1f%n", group, size * 1e9 / elapsed, forces, forces == 0 ? 0.0 : (double) size / forces);
+            }
+        }
+        Files.deleteIfExists(journalFile);
+    }
+}
@@ -0,0 +1,74 @@
+public class LatencyHistogram {
+    // Histogram of nanosecond latencies with logarithmic buckets
+    // Every power of two is split into 32 buckets, so a reported percentile is at most about 3% lower than the real value
+    // Recording is a few arithmetic operations and an array increment, nothing is allocated
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final long[] counts = new long[(64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+    private long count;
+    private long max;
+    private long total;
+
+    public void record(long value){
+        if (value < 0)
+            value = 0;
+        counts[bucket(value)]++;
+        count++;
+        total += value;
+        if (value > max)
+            max = value;
+    }
+
+    private static int bucket(long value){
+        if (value < SUB_BUCKETS) // Small values have exact buckets
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value); // At least SUB_BUCKET_BITS here
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) | subBucket;
+    }
+
+    private static long lowestValue(int bucket){
+        // Smallest value that falls into the bucket
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int exponent = (bucket >>> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket & (SUB_BUCKETS - 1);
+        return (SUB_BUCKETS | subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    public long percentile(double percentile){
+        // Value below or equal to which the given percentage of the recorded values are, 0 if nothing is recorded
+        long target = (long) Math.ceil(percentile / 100 * count);
+        if (target < 1)
+            target = 1;
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++){
+            seen += counts[i];
+            if (seen >= target)
+                return Math.min(lowestValue(i), max);
+        }
+        return max;
+    }
+
+    public void add(LatencyHistogram other){
+        for (int i = 0; i < counts.length; i++)
+            counts[i] += other.counts[i];
+        count += other.count;
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount(){
+        return count;
+    }
+
+    public long getMax(){
+        return max;
+    }
+
+    public double getMean(){
+        return count == 0 ? 0 : (double) total / count;
+    }
+}
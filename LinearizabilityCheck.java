@@ -0,0 +1,200 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LinearizabilityCheck {
+    // Checks that ConcurrentTruckSimulator is linearizable, which means every concurrent run gives the same responses as
+    // running its commands one by one on TruckSimulator, in an order where a command that finished before another one started is first
+    // Threads run short random histories on a few parking lots spread over every shard, then every order allowed by the
+    // start and end times of the commands is searched until one gives the same responses (Wing and Gong's algorithm)
+    // Usage: java LinearizabilityCheck [histories, 1000 by default] [threads, 3] [commands per thread, 5] [shards, 4] [seed, 1] [index, avl]
+
+    private static final int UNIVERSE = 64; // Capacities are in [0, UNIVERSE), so that commands of different shards meet often
+    private static final long MAX_STEPS = 10_000_000; // Histories whose search takes longer are reported as undecided
+
+    private static class Operation {
+        int command;
+        int first;
+        int second;
+        long start; // Ticks of the clock before the command started and after it ended
+        long end;
+        String response; // Response written by the concurrent simulator
+    }
+
+    private static final AtomicLong clock = new AtomicLong();
+    private static long steps;
+
+    public static void main(String[] args) throws Exception {
+        int histories = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int commands = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int shards = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+        Random random = new Random(args.length > 4 ? Long.parseLong(args[4]) : 1);
+        String index = args.length > 5 ? args[5] : "avl";
+        Options options = new Options();
+        options.universe = UNIVERSE;
+
+        int undecided = 0;
+        for (int h = 0; h < histories; h++){
+            // Same parking lots at the beginning of every history, created before the threads start
+            List<Operation> setup = new ArrayList<>();
+            for (int i = 0; i < 6; i++)
+                setup.add(operation(CommandHandler.CREATE_PARKING_LOT, random.nextInt(UNIVERSE), 1 + random.nextInt(2)));
+            for (int i = 0; i < 6; i++)
+                setup.add(operation(CommandHandler.ADD_TRUCK, i, random.nextInt(UNIVERSE)));
+            for (int i = 0; i < 3; i++)
+                setup.add(operation(CommandHandler.READY, random.nextInt(UNIVERSE), 0));
+
+            Operation[][] perThread = new Operation[threads][commands];
+            int truckID = 100;
+            for (Operation[] ops : perThread)
+                for (int i = 0; i < commands; i++)
+                    ops[i] = randomOperation(random, truckID++);
+
+            ConcurrentTruckSimulator simulator = new ConcurrentTruckSimulator(new ShardedLotIndex(shards, UNIVERSE, () -> options.createIndex(index)));
+            RecordingSink setupSink = new RecordingSink();
+            for (Operation op : setup)
+                run(simulator, op, setupSink);
+
+            CyclicBarrier barrier = new CyclicBarrier(threads);
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++){
+                Operation[] ops = perThread[t];
+                workers[t] = new Thread(() -> {
+                    RecordingSink sink = new RecordingSink();
+                    try{
+                        barrier.await();
+                    }catch (Exception e){
+                        throw new IllegalStateException(e);
+                    }
+                    for (Operation op : ops){
+                        op.start = clock.incrementAndGet();
+                        run(simulator, op, sink);
+                        op.end = clock.incrementAndGet();
+                        op.response = sink.toString();
+                        sink.clear();
+                    }
+                });
+                workers[t].start();
+            }
+            for (Thread worker : workers)
+                worker.join();
+
+            List<Operation> history = new ArrayList<>();
+            for (Operation[] ops : perThread)
+                for (Operation op : ops)
+                    history.add(op);
+
+            steps = 0;
+            Boolean result = search(setup, history, new boolean[history.size()], new int[history.size()], 0);
+            if (result == null)
+                undecided++;
+            else if (!result){
+                System.out.println("History " + h + " is not linearizable");
+                for (Operation op : setup)
+                    System.out.println("  setup " + describe(op));
+                for (int t = 0; t < threads; t++)
+                    for (Operation op : perThread[t])
+                        System.out.println("  thread " + t + " [" + op.start + ", " + op.end + "] " + describe(op) + " -> " + op.response.trim());
+                System.exit(1);
+            }
+        }
+        System.out.println(histories + " histories of " + threads + " threads with " + commands + " commands each on "
+                + shards + " " + index + " shards are linearizable" + (undecided > 0 ? ", " + undecided + " undecided" : ""));
+    }
+
+    private static Boolean search(List<Operation> setup, List<Operation> history, boolean[] done, int[] order, int length){
+        // Tries every operation that can come next in order, returns null if the search took too many steps
+        if (length == history.size())
+            return true;
+        if (++steps > MAX_STEPS)
+            return null;
+
+        // An operation can be next only if no remaining operation ended before it started
+        long firstEnd = Long.MAX_VALUE;
+        for (int i = 0; i < history.size(); i++)
+            if (!done[i])
+                firstEnd = Math.min(firstEnd, history.get(i).end);
+
+        boolean undecided = false;
+        for (int i = 0; i < history.size(); i++){
+            if (done[i] || history.get(i).start > firstEnd)
+                continue;
+            order[length] = i;
+            if (!replay(setup, history, order, length + 1))
+                continue;
+            done[i] = true;
+            Boolean result = search(setup, history, done, order, length + 1);
+            done[i] = false;
+            if (result == null)
+                undecided = true;
+            else if (result)
+                return true;
+        }
+        return undecided ? null : false;
+    }
+
+    private static boolean replay(List<Operation> setup, List<Operation> history, int[] order, int length){
+        // Whether running the operations in order on a sequential simulator gives the response of the last one
+        // Simulators can not be copied, so the whole prefix is run again, histories are short enough for that
+        TruckSimulator simulator = new TruckSimulator(new AVLTree());
+        RecordingSink sink = new RecordingSink();
+        for (Operation op : setup)
+            run(simulator, op, sink);
+        for (int i = 0; i < length; i++){
+            sink.clear();
+            run(simulator, history.get(order[i]), sink);
+        }
+        return sink.toString().equals(history.get(order[length - 1]).response);
+    }
+
+    private static Operation randomOperation(Random random, int truckID){
+        int roll = random.nextInt(100);
+        if (roll < 30)
+            return operation(CommandHandler.ADD_TRUCK, truckID, random.nextInt(UNIVERSE));
+        if (roll < 45)
+            return operation(CommandHandler.READY, random.nextInt(UNIVERSE), 0);
+        if (roll < 50)
+            return operation(CommandHandler.READY_N, random.nextInt(UNIVERSE), 1 + random.nextInt(3));
+        if (roll < 65)
+            return operation(CommandHandler.LOAD, random.nextInt(UNIVERSE), 1 + random.nextInt(UNIVERSE * 2));
+        if (roll < 80)
+            return operation(CommandHandler.COUNT, random.nextInt(UNIVERSE), 0);
+        if (roll < 86){
+            int low = random.nextInt(UNIVERSE);
+            return operation(CommandHandler.COUNT_RANGE, low, low + random.nextInt(UNIVERSE / 2));
+        }
+        // A truck of the setup or one added by some thread before, it may not exist yet or anymore
+        int existingID = random.nextBoolean() ? random.nextInt(6) : 100 + random.nextInt(truckID - 99);
+        if (roll < 90)
+            return operation(CommandHandler.LOCATE, existingID, 0);
+        if (roll < 93)
+            return operation(CommandHandler.REMOVE_TRUCK, existingID, 0);
+        if (roll < 97)
+            return operation(CommandHandler.CREATE_PARKING_LOT, random.nextInt(UNIVERSE), 1 + random.nextInt(2));
+        return operation(CommandHandler.DELETE_PARKING_LOT, random.nextInt(UNIVERSE), 0);
+    }
+
+    private static Operation operation(int command, int first, int second){
+        Operation op = new Operation();
+        op.command = command;
+        op.first = first;
+        op.second = second;
+        return op;
+    }
+
+    private static void run(TruckSimulator simulator, Operation op, ResponseSink out){
+        try{
+            Main.simulate(simulator, out).handle(op.command, op.first, op.second, null);
+        }catch (IOException e){
+            throw new IllegalStateException(e); // Simulators do not do I/O
+        }
+    }
+
+    private static String describe(Operation op){
+        return CommandParser.nameOf(op.command) + " " + op.first + " " + op.second;
+    }
+}
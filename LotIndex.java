@@ -0,0 +1,91 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface LotIndex {
+    // Ordered index of parking lots by capacityConstraint, TruckSimulator only talks to its parking lots through this interface
+    // Flags given to searches are the ones of ParkingLot.getFlags
+
+    // Adds the parking lot, ignored if a parking lot with the same capacityConstraint already exists
+    void insert(ParkingLot p);
+
+    // Whether a parking lot with this capacityConstraint can be inserted, indexes for a limited range of capacities override this
+    default boolean accepts(int capacity){
+        return true;
+    }
+
+    // Removes the parking lot with given capacityConstraint (if exists)
+    void delete(int capacity);
+
+    // Must be called after trucks of the parking lot have changed so that its flags and truck count are seen by the index
+    void update(ParkingLot p);
+
+    // Parking lot with this capacityConstraint, null if there is none
+    ParkingLot get(int capacity);
+
+    // Parking lot with greatest capacityConstraint <= capacity that has the flag, null if there is none
+    ParkingLot findSmallerThan(int capacity, int flag);
+
+    // Parking lot with smallest capacityConstraint >= capacity that has the flag, null if there is none
+    ParkingLot findGreaterThan(int capacity, int flag);
+
+    // Number of trucks in parking lots with capacityConstraint greater than capacity
+    long count(int capacity);
+
+    // Number of trucks in parking lots with low <= capacityConstraint <= high
+    long countRange(int low, int high);
+
+    // Calls action with every parking lot in ascending capacityConstraint order
+    void forEach(Consumer<ParkingLot> action);
+
+    // Fills an empty index with parking lots sorted by capacityConstraint without duplicates
+    // Indexes that can be built without searching for every parking lot override this
+    default void build(ParkingLot[] lots){
+        for (ParkingLot p : lots)
+            insert(p);
+    }
+
+    // Adds parking lots sorted by capacityConstraint without duplicates, the ones whose capacityConstraint already exists are ignored
+    // Indexes that can merge them with their parking lots in a single pass override this
+    default void insertAll(ParkingLot[] lots){
+        for (ParkingLot p : lots)
+            insert(p);
+    }
+
+    // Parking lots of index and lots in ascending capacityConstraint order, the one of index is kept when both have a capacityConstraint
+    static ParkingLot[] merge(LotIndex index, ParkingLot[] lots){
+        List<ParkingLot> existing = new ArrayList<>();
+        index.forEach(existing::add);
+        ParkingLot[] merged = new ParkingLot[existing.size() + lots.length];
+        int i = 0;
+        int j = 0;
+        int length = 0;
+        while (i < existing.size() || j < lots.length){
+            if (j == lots.length || (i < existing.size() && existing.get(i).getCapacityConstraint() <= lots[j].getCapacityConstraint())){
+                if (j < lots.length && existing.get(i).getCapacityConstraint() == lots[j].getCapacityConstraint())
+                    j++; // Duplicate of an existing parking lot
+                merged[length++] = existing.get(i++);
+            }
+            else
+                merged[length++] = lots[j++];
+        }
+        return length == merged.length ? merged : Arrays.copyOf(merged, length);
+    }
+
+    // Same as count, but can be called while another thread changes the index, so the result can be wrong or -1 if the walk gave up
+    // Caller must check that nothing changed during the call (like StampedLock.validate) before using it, -1 if the index can not do this
+    default long tryCount(int capacity){
+        return -1;
+    }
+
+    // Same as countRange, like tryCount
+    default long tryCountRange(int low, int high){
+        return -1;
+    }
+
+    // Height of the tree for tree indexes, only used by Stats
+    default int getHeight(){
+        return -1;
+    }
+}
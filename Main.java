@@ -1,72 +1,192 @@
-import java.io.*;
-import java.util.Scanner;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Function;
 
 public class Main {
     public static void main(String[] args) throws IOException {
-        File inputFile = new File(args[0]);
-        File outputFile = new File(args[1]);
+        Options options;
+        try{
+            options = Options.parse(args);
+        }catch (IllegalArgumentException e){
+            System.out.println(e.getMessage());
+            System.out.println(Options.USAGE);
+            return;
+        }
+        if (options.statsFile != null) // Must be set before Stats is used for the first time
+            System.setProperty("fleet.stats", "true");
+        if (options.port != -1){ // Commands come from TCP connections until the process is stopped
+            TruckSimulator manager;
+            try{
+                manager = run(options, (simulator, journal) -> FleetServer.serve(options.port, simulator, journal));
+            }catch (ShadowMismatchException e){
+                System.out.println(e.getMessage());
+                System.exit(1);
+                return;
+            }
+            if (options.statsFile != null)
+                Files.writeString(Paths.get(options.statsFile), Stats.toJson(manager.parkingLots) + System.lineSeparator());
+            return;
+        }
+        File inputFile = new File(options.inputFile);
+        File outputFile = new File(options.outputFile);
 
-        BufferedWriter outWriter; // To output in a file we will use BufferedWriter class
+        FileChannel output; // Responses are formatted into bytes and written to this channel
         try{
-            outWriter =new BufferedWriter(new FileWriter(outputFile));
-        }catch (FileNotFoundException e2){
+            output = FileChannel.open(outputFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        }catch (IOException e2){
             e2.printStackTrace();
             return;
         }
 
-        Scanner reader; // Scanner for the input file
+        FileChannel input; // Channel of the input file, it is parsed directly as bytes
         try{
-            reader = new Scanner(inputFile);
-        }catch (FileNotFoundException e){
+            input = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ);
+        }catch (NoSuchFileException e){
             System.out.println("Cannot find input file");
             return;
         }
 
 
-        TruckSimulator manager = new TruckSimulator(); // The object which we use to manage our fleet
+        TruckSimulator manager;
+        try{
+            manager = run(options, input, output);
+        }catch (ShadowMismatchException e){
+            // Shadow index gave a different response, output is kept up to the last matching line
+            System.out.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
 
+        input.close();
+        output.close();
 
-        String line;
-        String[] temp;
-        while (reader.hasNextLine()){
-            line = reader.nextLine();
-            temp = line.split(" ");
-            String command = temp[0];
+        if (options.statsFile != null)
+            Files.writeString(Paths.get(options.statsFile), Stats.toJson(manager.parkingLots) + System.lineSeparator());
+    }
 
-            if (command.equals("create_parking_lot")){
-                int capacityConstraint = Integer.parseInt(temp[1]);
-                int truckLimit = Integer.parseInt(temp[2]);
-                manager.createParkingLot(capacityConstraint, truckLimit);
-            }
-            else if (command.equals("add_truck")){
-                int truckID = Integer.parseInt(temp[1]);
-                int truckCapacity = Integer.parseInt(temp[2]);
-                outWriter.write(manager.addTruck(truckID, truckCapacity));
-                outWriter.newLine();
-            }
-            else if (command.equals("delete_parking_lot")){
-                int capacityConstraint = Integer.parseInt(temp[1]);
-                manager.deleteParkingLot(capacityConstraint);
-            }
-            else if (command.equals("ready")){
-                int capacityConstraint = Integer.parseInt(temp[1]);
-                outWriter.write(manager.ready(capacityConstraint));
-                outWriter.newLine();
-            }
-            else if (command.equals("load")){
-                int capacityConstraint = Integer.parseInt(temp[1]);
-                int loadAmount = Integer.parseInt(temp[2]);
-                outWriter.write(manager.load(capacityConstraint, loadAmount));
-                outWriter.newLine();
+    interface Driver {
+        // Source of the commands of a run, gets the handler for every sink it writes responses to
+        // Journal is null without -journal, a driver that acknowledges commands commits it before it sends their responses
+        void drive(Function<ResponseSink, CommandHandler> simulator, Journal journal) throws IOException;
+    }
+
+    static TruckSimulator run(Options options, ReadableByteChannel input, WritableByteChannel output) throws IOException {
+        // Runs every command of input on a new simulator and writes the responses to output, returns the simulator
+        // Channels are not closed, a ShadowMismatchException from a shadow simulator is thrown after the output is flushed
+        ResponseWriter outWriter = options.binaryOutput ? new BinaryResponseWriter(output) : new ChannelResponseWriter(output);
+        CommandSource parser = options.binaryInput ? new BinaryCommandParser(input) : new CommandParser(input);
+        return run(options, (handler, journal) -> {
+            try{
+                if (options.pipeline) // Parsing, simulation and writing run on different threads
+                    Pipeline.run(parser, handler, outWriter);
+                else
+                    parser.parse(handler.apply(outWriter));
+            }finally{
+                outWriter.flush();
             }
-            else if (command.equals("count")){
-                int capacityConstraint = Integer.parseInt(temp[1]);
-                outWriter.write(manager.count(capacityConstraint));
-                outWriter.newLine();
+        });
+    }
+
+    static TruckSimulator run(Options options, Driver driver) throws IOException {
+        // Creates the simulator of options, restores it, lets driver run commands on it and closes its files, returns the simulator
+        TruckSimulator manager = options.createSimulator(options.index); // The object which we use to manage our fleet
+
+        // Same commands also run on a second index and every response is compared if there is a shadow simulator
+        TruckSimulator shadow = options.shadow == null ? null : options.createSimulator(options.shadow);
+        long sequence = 0; // Journal sequence of the state the simulators start with
+        if (options.restoreFile != null){
+            sequence = manager.restore(Paths.get(options.restoreFile));
+            if (shadow != null)
+                shadow.restore(Paths.get(options.restoreFile));
+        }
+        TruckStore store = null;
+        if (options.storeFile != null){ // Simulator continues with the parking lots of the store, a shadow gets heap copies of them
+            store = new TruckStore(Paths.get(options.storeFile));
+            manager.open(store);
+            if (shadow != null){
+                ParkingLot[] copies = store.getLots().clone();
+                for (int i = 0; i < copies.length; i++)
+                    copies[i] = copies[i].copy();
+                shadow.fill(copies);
             }
         }
+        Journal journal = null;
+        if (options.journalFile != null){ // Commands of the journal after the snapshot are applied again, then new ones are appended
+            journal = new Journal(Paths.get(options.journalFile), options.groupBytes, options.groupMillis);
+            journal.replay(manager, sequence);
+            if (shadow != null)
+                journal.replay(shadow, sequence);
+            manager.setJournal(journal);
+        }
 
-        reader.close();
-        outWriter.close();
+        Function<ResponseSink, CommandHandler> handler = sink -> shadow == null ? simulate(manager, sink) : new ShadowHandler(manager, shadow, sink);
+
+        try{
+            driver.drive(handler, journal);
+        }finally{
+            if (journal != null)
+                journal.close();
+            if (store != null)
+                store.close();
+        }
+        return manager;
+    }
+
+    static CommandHandler simulate(TruckSimulator manager, ResponseSink outWriter){
+        // Handler that runs every parsed command on the manager and writes the responses
+        CommandHandler handler = (command, first, second, text) -> {
+            switch (command){
+                case CommandHandler.CREATE_PARKING_LOT:
+                    manager.createParkingLot(first, second);
+                    break;
+                case CommandHandler.ADD_TRUCK:
+                    manager.addTruck(first, second, outWriter);
+                    break;
+                case CommandHandler.DELETE_PARKING_LOT:
+                    manager.deleteParkingLot(first);
+                    break;
+                case CommandHandler.READY:
+                    manager.ready(first, outWriter);
+                    break;
+                case CommandHandler.LOAD:
+                    manager.load(first, second, outWriter);
+                    break;
+                case CommandHandler.COUNT:
+                    manager.count(first, outWriter);
+                    break;
+                case CommandHandler.COUNT_RANGE:
+                    manager.countRange(first, second, outWriter);
+                    break;
+                case CommandHandler.STATS:
+                    manager.stats(outWriter);
+                    break;
+                case CommandHandler.SNAPSHOT:
+                    manager.snapshot(Paths.get(text), outWriter);
+                    break;
+                case CommandHandler.CREATE_PARKING_LOTS:
+                    int[] operands = CommandParser.parseInts(text);
+                    if (operands.length % 2 != 0)
+                        throw new IOException("create_parking_lots expects capacity and limit pairs");
+                    manager.createParkingLots(operands);
+                    break;
+                case CommandHandler.LOCATE:
+                    manager.locate(first, outWriter);
+                    break;
+                case CommandHandler.REMOVE_TRUCK:
+                    manager.removeTruck(first, outWriter);
+                    break;
+                case CommandHandler.READY_N:
+                    manager.readyN(first, second, outWriter);
+                    break;
+            }
+        };
+        return Stats.ENABLED ? Stats.timed(handler) : handler; // Commands are only timed if stats are enabled
     }
-}
\ No newline at end of file
+}
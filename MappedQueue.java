@@ -0,0 +1,225 @@
+import java.nio.ByteBuffer;
+
+public class MappedQueue implements TruckQueue {
+    // Same circular queue with tombstones as MyQueue, but its trucks are fixed width records in a block of a TruckStore
+    // Ring has room for twice the limit, as many trucks as the limit and as many tombstones (see MyQueue.grow), so it never grows
+    // and records never move to another place in the file, compact moves the trucks together in place
+    // first, size, removed and firstSequence are kept in fields so reads do not touch the file, every change is also written to the
+    // header in the file, so the queue continues where it was when the store is opened again
+    // Header: first, size, removed, firstSequence. Record: ID, capacity, load
+
+    private static final int RECORD_SIZE = 12;
+    private static final int REMOVED = Integer.MIN_VALUE; // Load of a tombstone, like in MyQueue
+    private static final int FIRST = 0; // Offsets in the header
+    private static final int SIZE = 4;
+    private static final int REMOVED_COUNT = 8;
+    private static final int FIRST_SEQUENCE = 12;
+
+    private final TruckStore store;
+    private final long header; // File position of the header
+    private final long records; // File position of the first record of the ring
+    private final int limit;
+    private final int length; // Records in the ring
+
+    private int first; // Index of the first record
+    private int size;
+    private int removed;
+    private int firstSequence;
+
+    MappedQueue(TruckStore store, long header, long records, int limit){
+        // Queue whose header and ring are already in the file, a new one must be cleared first
+        this.store = store;
+        this.header = header;
+        this.records = records;
+        this.limit = limit;
+        length = ringLength(limit);
+        first = store.getInt(header + FIRST);
+        size = store.getInt(header + SIZE);
+        removed = store.getInt(header + REMOVED_COUNT);
+        firstSequence = store.getInt(header + FIRST_SEQUENCE);
+    }
+
+    private static int ringLength(int limit){
+        return 2 * Math.max(limit, 0);
+    }
+
+    public static long ringSize(int limit){
+        // Bytes of the ring of a queue with this limit
+        return (long) ringLength(limit) * RECORD_SIZE;
+    }
+
+    public static void clear(TruckStore store, long header){
+        // Makes the header at this position the header of an empty queue
+        for (int offset = 0; offset < 16; offset += 4)
+            store.putInt(header + offset, 0);
+    }
+
+    private void writeHeader(){
+        store.putInt(header + FIRST, first);
+        store.putInt(header + SIZE, size);
+        store.putInt(header + REMOVED_COUNT, removed);
+        store.putInt(header + FIRST_SEQUENCE, firstSequence);
+    }
+
+    private long record(int index){
+        return records + (long) index * RECORD_SIZE;
+    }
+
+    private int indexAt(int offset){
+        // Ring index of the record offset places after the first one
+        int index = first + offset;
+        return index >= length ? index - length : index;
+    }
+
+    @Override
+    public void enqueue(int id, int capacity, int load){
+        if (isFull())
+            return;
+        long record = record(indexAt(size + removed));
+        store.putInt(record, id);
+        store.putInt(record + 4, capacity);
+        store.putInt(record + 8, load);
+        size++;
+        store.putInt(header + SIZE, size);
+    }
+
+    @Override
+    public void dequeue(){
+        if (isEmpty())
+            return;
+        first = indexAt(1);
+        firstSequence++;
+        size--;
+        while (removed > 0 && store.getInt(record(first) + 8) == REMOVED){ // Tombstones that reached the front
+            first = indexAt(1);
+            firstSequence++;
+            removed--;
+        }
+        writeHeader();
+    }
+
+    @Override
+    public int getFirstID(){
+        return store.getInt(record(first));
+    }
+
+    @Override
+    public int getFirstCapacity(){
+        return store.getInt(record(first) + 4);
+    }
+
+    @Override
+    public int getFirstLoad(){
+        return store.getInt(record(first) + 8);
+    }
+
+    @Override
+    public int getLastSequence(){
+        return firstSequence + size + removed - 1;
+    }
+
+    @Override
+    public int getFirstSequence(){
+        return firstSequence;
+    }
+
+    @Override
+    public boolean contains(int sequence){
+        int offset = sequence - firstSequence;
+        return offset >= 0 && offset < size + removed && store.getInt(record(indexAt(offset)) + 8) != REMOVED;
+    }
+
+    @Override
+    public int getIDAt(int sequence){
+        return store.getInt(record(indexAt(sequence - firstSequence)));
+    }
+
+    @Override
+    public boolean remove(int sequence){
+        if (!contains(sequence))
+            return false;
+        int offset = sequence - firstSequence;
+        if (offset == 0){
+            dequeue();
+            return true;
+        }
+        store.putInt(record(indexAt(offset)) + 8, REMOVED);
+        size--;
+        removed++;
+        while (store.getInt(record(indexAt(size + removed - 1)) + 8) == REMOVED) // Tombstones at the back are dropped
+            removed--;
+        writeHeader();
+        return true;
+    }
+
+    @Override
+    public boolean needsCompaction(){
+        return removed > size;
+    }
+
+    @Override
+    public void compact(){
+        // Trucks are copied towards first, a truck is never copied over one that was not copied yet
+        int to = first;
+        int from = first;
+        for (int i = 0; i < size + removed; i++){
+            long record = record(from);
+            if (store.getInt(record + 8) != REMOVED){
+                if (to != from){
+                    long target = record(to);
+                    store.putInt(target, store.getInt(record));
+                    store.putInt(target + 4, store.getInt(record + 4));
+                    store.putInt(target + 8, store.getInt(record + 8));
+                }
+                to = to + 1 == length ? 0 : to + 1;
+            }
+            from = from + 1 == length ? 0 : from + 1;
+        }
+        removed = 0;
+        writeHeader();
+    }
+
+    @Override
+    public void writeTo(ByteBuffer buffer){
+        buffer.putInt(size);
+        int index = first;
+        for (int i = 0; i < size + removed; i++){
+            long record = record(index);
+            if (store.getInt(record + 8) != REMOVED)
+                buffer.putInt(store.getInt(record)).putInt(store.getInt(record + 4)).putInt(store.getInt(record + 8));
+            index = index + 1 == length ? 0 : index + 1;
+        }
+    }
+
+    @Override
+    public void readFrom(ByteBuffer buffer){
+        int count = buffer.getInt();
+        if (count < 0 || count > limit || size != 0)
+            throw new IllegalArgumentException("Queue can not take " + count + " trucks");
+        for (int i = 0; i < count; i++){
+            long record = record(i);
+            store.putInt(record, buffer.getInt());
+            store.putInt(record + 4, buffer.getInt());
+            store.putInt(record + 8, buffer.getInt());
+        }
+        first = 0;
+        size = count;
+        removed = 0;
+        writeHeader();
+    }
+
+    @Override
+    public int getSize(){
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    @Override
+    public boolean isFull(){
+        return size == limit;
+    }
+}
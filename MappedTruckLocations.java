@@ -0,0 +1,152 @@
+public class MappedTruckLocations implements TruckLocations {
+    // TruckLocations in a block of a TruckStore, the same open addressing with linear probing and backward shift deletion as
+    // HeapTruckLocations, nothing about a truck is kept on the heap
+    // Slot: truck ID, capacityConstraint of its parking lot, section (0 for an empty slot), sequence number
+    // Table moves to a block twice as large when more than half of its slots would be used, the file points to the new table only
+    // once it is complete
+    // Block has a header before the slots, so their count is not a power of two and a hash is mapped to a slot by a multiplication
+    // Block: size class, state, size, length, then the slots
+
+    private static final int SIZE = 8; // Offsets in the block
+    private static final int LENGTH = 12;
+    private static final int SLOTS = 16;
+    private static final int SLOT_SIZE = 16;
+    private static final int INITIAL_LENGTH = 63; // Slots of the first table, it fills a block of 1 KB
+
+    private final TruckStore store;
+    private long slots; // File position of the first slot, 0 before the first truck is put
+    private int length; // Slots in the table
+    private int size;
+    private long block;
+
+    MappedTruckLocations(TruckStore store, long block){
+        // Table in block, or no table yet if block is 0
+        this.store = store;
+        this.block = block;
+        if (block != 0){
+            slots = block + SLOTS;
+            length = store.getInt(block + LENGTH);
+            size = store.getInt(block + SIZE);
+        }
+    }
+
+    private int slotOf(int truckID){
+        // Fibonacci hashing, the high bits of the hash are scaled to [0, length)
+        int hash = truckID * 0x9E3779B9;
+        return (int) (((hash & 0xFFFFFFFFL) * length) >>> 32);
+    }
+
+    private int next(int slot){
+        return slot + 1 == length ? 0 : slot + 1;
+    }
+
+    private long address(int slot){
+        return slots + (long) slot * SLOT_SIZE;
+    }
+
+    @Override
+    public int find(int truckID){
+        if (length == 0)
+            return -1;
+        for (int slot = slotOf(truckID); store.getInt(address(slot) + 8) != 0; slot = next(slot))
+            if (store.getInt(address(slot)) == truckID)
+                return slot;
+        return -1;
+    }
+
+    @Override
+    public ParkingLot getLot(int slot){
+        return store.lotOf(store.getInt(address(slot) + 4));
+    }
+
+    @Override
+    public int getSection(int slot){
+        return store.getInt(address(slot) + 8);
+    }
+
+    @Override
+    public int getSequence(int slot){
+        return store.getInt(address(slot) + 12);
+    }
+
+    @Override
+    public void put(int truckID, ParkingLot p, int section, int sequence){
+        if (2L * (size + 1) > length){ // Table might need one more slot, it grows before the slot is searched
+            if (find(truckID) == -1)
+                grow();
+        }
+        int slot = slotOf(truckID);
+        while (store.getInt(address(slot) + 8) != 0 && store.getInt(address(slot)) != truckID)
+            slot = next(slot);
+        long address = address(slot);
+        if (store.getInt(address + 8) == 0){
+            size++;
+            store.putInt(block + SIZE, size);
+        }
+        store.putInt(address, truckID);
+        store.putInt(address + 4, p.getCapacityConstraint());
+        store.putInt(address + 12, sequence);
+        store.putInt(address + 8, section);
+    }
+
+    @Override
+    public void remove(int truckID){
+        int slot = find(truckID);
+        if (slot == -1)
+            return;
+        // Entries after the slot are moved back into it if their own slot is not between the hole and them
+        int hole = slot;
+        for (int next = next(hole); store.getInt(address(next) + 8) != 0; next = next(next)){
+            int home = slotOf(store.getInt(address(next)));
+            if (distance(home, next) >= distance(hole, next)){
+                long from = address(next);
+                long to = address(hole);
+                for (int offset = 0; offset < SLOT_SIZE; offset += 4)
+                    store.putInt(to + offset, store.getInt(from + offset));
+                hole = next;
+            }
+        }
+        store.putInt(address(hole) + 8, 0);
+        size--;
+        store.putInt(block + SIZE, size);
+    }
+
+    private int distance(int from, int to){
+        // Steps from slot from forward to slot to
+        return to >= from ? to - from : to - from + length;
+    }
+
+    private void grow(){
+        // Copies every entry into a new table of about twice the length, then the file switches to it and the old block is freed
+        int newLength = length == 0 ? INITIAL_LENGTH : 2 * length + 1;
+        long newBlock = store.allocateTable(SLOTS + (long) newLength * SLOT_SIZE);
+        long newSlots = newBlock + SLOTS;
+        for (int slot = 0; slot < newLength; slot++) // Block may have been used before
+            store.putInt(newSlots + (long) slot * SLOT_SIZE + 8, 0);
+
+        long oldSlots = slots;
+        int oldLength = length;
+        slots = newSlots;
+        length = newLength;
+        for (int slot = 0; slot < oldLength; slot++){
+            long from = oldSlots + (long) slot * SLOT_SIZE;
+            if (store.getInt(from + 8) == 0)
+                continue;
+            int target = slotOf(store.getInt(from));
+            while (store.getInt(address(target) + 8) != 0)
+                target = next(target);
+            long to = address(target);
+            for (int offset = 0; offset < SLOT_SIZE; offset += 4)
+                store.putInt(to + offset, store.getInt(from + offset));
+        }
+        store.putInt(newBlock + SIZE, size);
+        store.putInt(newBlock + LENGTH, newLength);
+        store.setTable(newBlock);
+        block = newBlock;
+    }
+
+    @Override
+    public int getSize(){
+        return size;
+    }
+}
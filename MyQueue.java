@@ -1,37 +1,197 @@
-public class MyQueue {
+import java.nio.ByteBuffer;
 
-    // Queue with circular array
-    private final Truck[] arr;
+public class MyQueue implements TruckQueue {
+
+    private static final int INITIAL_LENGTH = 4; // Arrays start this small and double when they are full
+    private static final int REMOVED = Integer.MIN_VALUE; // Load of a truck removed from the middle, real loads are never negative
+
+    // Queue with circular arrays, trucks are stored as values in parallel arrays instead of Truck objects
+    // Arrays grow with the number of trucks, so memory depends on how many trucks are parked, not on the limit
+    // Every enqueued truck gets the next sequence number, a truck's place in the arrays follows from it, see TruckLocations
+    // A truck removed from the middle stays in the arrays as a tombstone, so the sequence numbers of the others do not change
+    // Tombstones are skipped when they reach the front or the back, and compact removes them once they outnumber the trucks
+    private int[] ids; // Unique IDs of the trucks
+    private int[] capacities; // Maximum load capacities of the trucks
+    private int[] loads; // Current loads of the trucks
 
     private int size; // Truck count in the queue
-    private final int length; // Maximum truck capacity
+    private int length; // Current length of the arrays
+    private final int limit; // Maximum truck capacity
     private int first; // Index of the first element
     private int last; // Index of the last element
+    private int removed; // Tombstones between first and last, never more than the limit since compact is called after removals
+    private int firstSequence; // Sequence number of the element at first, numbers wrap around like ints
 
-    MyQueue(int length){
-        arr = new Truck[length];
+    MyQueue(int limit){
+        this.limit = limit;
+        length = Math.min(limit, INITIAL_LENGTH);
+        ids = new int[length];
+        capacities = new int[length];
+        loads = new int[length];
         first = 0; // Initially 0 because first dequeued element is always at 0th index
         last = -1; // Initially -1 because when we add the first element we want it to be on 0
         size = 0; // Initially no trucks in the queue
-        this.length = length;
     }
 
-    public void enqueue(Truck t){
+    public void enqueue(int id, int capacity, int load){
         if (isFull()) // Can not add truck
             return;
+        if (size + removed == length) // Arrays are full but the limit is not reached yet
+            grow();
         last = (last+1)%length; // Move to right circularly
-        arr[last] = t; // Add the truck
+        ids[last] = id; // Add the truck
+        capacities[last] = capacity;
+        loads[last] = load;
         size++; // Increment the size
     }
 
-    public Truck dequeue(){
-        if (isEmpty()){ // Can not remove truck
-            return null;
-        }
-        Truck t = arr[first]; // This truck will be removed
+    private void grow(){
+        // Doubles the length of the arrays, trucks are copied in order starting from index 0
+        // Arrays never need more than twice the limit, as many trucks as the limit and as many tombstones
+        int newLength = (int) Math.min(2L * limit, 2L * length);
+        ids = copy(ids, newLength);
+        capacities = copy(capacities, newLength);
+        loads = copy(loads, newLength);
+        first = 0;
+        last = size + removed - 1;
+        length = newLength;
+    }
+
+    private int[] copy(int[] arr, int newLength){
+        int[] newArr = new int[newLength];
+        int used = size + removed;
+        int head = Math.min(used, length - first); // Trucks from first to the end of the array
+        System.arraycopy(arr, first, newArr, 0, head);
+        System.arraycopy(arr, 0, newArr, head, used - head); // Trucks that wrapped around to the beginning
+        return newArr;
+    }
+
+    public void dequeue(){
+        // Removes the first truck, its values must be read with the getters before calling this
+        if (isEmpty()) // Can not remove truck
+            return;
         first = (first+1)%length; // Move to right circularly
+        firstSequence++;
         size--; // Decrement the size
-        return t; // Return the truck
+        while (removed > 0 && loads[first] == REMOVED){ // Tombstones that reached the front
+            first = (first+1)%length;
+            firstSequence++;
+            removed--;
+        }
+    }
+
+    public int getLastSequence(){
+        // Sequence number of the last enqueued truck
+        return firstSequence + size + removed - 1;
+    }
+
+    public int getFirstSequence(){
+        return firstSequence;
+    }
+
+    public boolean contains(int sequence){
+        // Whether a truck with this sequence number is in the queue, tombstones are not
+        int offset = sequence - firstSequence;
+        return offset >= 0 && offset < size + removed && loads[(first + offset) % length] != REMOVED;
+    }
+
+    public int getIDAt(int sequence){
+        // ID of the truck with this sequence number, only valid if contains(sequence)
+        return ids[(first + sequence - firstSequence) % length];
+    }
+
+    public boolean remove(int sequence){
+        // Removes the truck with this sequence number from anywhere in the queue, returns false if there is no such truck
+        if (!contains(sequence))
+            return false;
+        int offset = sequence - firstSequence;
+        int index = (first + offset) % length;
+        if (offset == 0){
+            dequeue();
+            return true;
+        }
+        loads[index] = REMOVED;
+        size--;
+        removed++;
+        while (loads[last] == REMOVED){ // Tombstones at the back are dropped, so tombstones always have trucks on both sides
+            last = (last - 1 + length) % length;
+            removed--;
+        }
+        return true;
+    }
+
+    public boolean needsCompaction(){
+        return removed > size;
+    }
+
+    public void compact(){
+        // Moves the trucks next to each other from index 0, the truck at first keeps its sequence number and the others follow it
+        // Sequence numbers of the trucks after a tombstone change, so the caller must record them again
+        int to = 0;
+        int[] newIds = new int[length];
+        int[] newCapacities = new int[length];
+        int[] newLoads = new int[length];
+        int index = first;
+        for (int i = 0; i < size + removed; i++){
+            if (loads[index] != REMOVED){
+                newIds[to] = ids[index];
+                newCapacities[to] = capacities[index];
+                newLoads[to] = loads[index];
+                to++;
+            }
+            index = index + 1 == length ? 0 : index + 1;
+        }
+        ids = newIds;
+        capacities = newCapacities;
+        loads = newLoads;
+        first = 0;
+        last = size - 1;
+        removed = 0;
+    }
+
+    // Values of the first truck, only valid if the queue is not empty
+    public int getFirstID(){
+        return ids[first];
+    }
+
+    public int getFirstCapacity(){
+        return capacities[first];
+    }
+
+    public int getFirstLoad(){
+        return loads[first];
+    }
+
+    public void writeTo(ByteBuffer buffer){
+        // Writes the size, then ID, capacity and load of every truck from the first one, tombstones are left out
+        buffer.putInt(size);
+        int index = first;
+        for (int i = 0; i < size + removed; i++){
+            if (loads[index] != REMOVED)
+                buffer.putInt(ids[index]).putInt(capacities[index]).putInt(loads[index]);
+            index = index + 1 == length ? 0 : index + 1;
+        }
+    }
+
+    public void readFrom(ByteBuffer buffer){
+        // Fills an empty queue with the trucks written by writeTo, arrays are allocated once with the right length
+        int count = buffer.getInt();
+        if (count < 0 || count > limit || size != 0)
+            throw new IllegalArgumentException("Queue can not take " + count + " trucks");
+        if (count > length){
+            length = count;
+            ids = new int[length];
+            capacities = new int[length];
+            loads = new int[length];
+        }
+        for (int i = 0; i < count; i++){
+            ids[i] = buffer.getInt();
+            capacities[i] = buffer.getInt();
+            loads[i] = buffer.getInt();
+        }
+        first = 0;
+        last = count - 1;
+        size = count;
     }
 
     public int getSize(){
@@ -43,7 +203,7 @@ public class MyQueue {
     }
 
     public boolean isFull(){
-        return size == length;
+        return size == limit;
     }
 
 
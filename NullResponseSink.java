@@ -0,0 +1,19 @@
+public class NullResponseSink implements ResponseSink {
+    // Throws every response away, used when only the state of the simulator matters
+
+    @Override
+    public void value(long value){
+    }
+
+    @Override
+    public void pair(int first, int second){
+    }
+
+    @Override
+    public void text(String text){
+    }
+
+    @Override
+    public void end(){
+    }
+}
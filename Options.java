@@ -0,0 +1,159 @@
+public class Options {
+    // Command line options of Main, flags come before the input and output files
+    public static final String USAGE = "Usage: java Main [-index avl|arrayavl|bitset|treemap|array] [-universe n] [-shadow index] [-shards n] [-restore file] [-journal file] [-store file] [-group-bytes n] [-group-millis n] [-stats file] [-pipeline]\n"
+            + "                 [-input-format text|binary] [-output-format text|binary] <input file> <output file>\n"
+            + "       java Main [options] -port n";
+
+    public String inputFile;
+    public String outputFile;
+
+    public String index = "avl"; // Which LotIndex the simulator uses
+    public int universe = 1 << 20; // Capacities of the bitset index must be in [0, universe)
+    public String shadow; // If not null, a second simulator with this index runs next to the first one and their outputs are compared
+    public int shards = 1; // If more than 1, parking lots are split into this many capacity ranges of the universe with a lock each
+    public String restoreFile; // If not null, simulators start with the parking lots of this snapshot
+    public String journalFile; // If not null, commands are journaled to this file and the journal is replayed at start
+    public String storeFile; // If not null, trucks are kept in this memory mapped TruckStore and the simulator continues from it
+    public int groupBytes = 1 << 16; // Journal groups are forced to disk when they reach this many bytes
+    public long groupMillis = 10; // Or when their first command is this old
+    public String statsFile; // If not null, Stats are enabled and written to this file as JSON at exit
+    public boolean pipeline; // Whether parsing, simulation and writing run on three threads
+    public boolean binaryInput; // Whether commands are read in the format of BinaryCommandParser instead of text lines
+    public boolean binaryOutput; // Whether responses are written by a BinaryResponseWriter instead of as text lines
+    public int port = -1; // If not -1, commands come from TCP connections to this loopback port instead of an input file
+
+    public static Options parse(String[] args){
+        return parse(args, true);
+    }
+
+    public static Options parse(String[] args, boolean outputRequired){
+        // If the output file is not required, it can be left out and outputFile stays null
+        Options options = new Options();
+        int i = 0;
+        while (i < args.length && args[i].startsWith("-")){
+            String flag = args[i++];
+            if (flag.equals("-pipeline")){ // Only option without a value
+                options.pipeline = true;
+                continue;
+            }
+            if (i == args.length)
+                throw new IllegalArgumentException("Missing value for " + flag);
+            String value = args[i++];
+            switch (flag){
+                case "-index":
+                    options.index = checkIndex(value);
+                    break;
+                case "-universe":
+                    options.universe = Integer.parseInt(value);
+                    break;
+                case "-shadow":
+                    options.shadow = checkIndex(value);
+                    break;
+                case "-shards":
+                    options.shards = Integer.parseInt(value);
+                    if (options.shards < 1)
+                        throw new IllegalArgumentException("Shard count must be positive");
+                    break;
+                case "-restore":
+                    options.restoreFile = value;
+                    break;
+                case "-journal":
+                    options.journalFile = value;
+                    break;
+                case "-store":
+                    options.storeFile = value;
+                    break;
+                case "-group-bytes":
+                    options.groupBytes = Integer.parseInt(value);
+                    break;
+                case "-group-millis":
+                    options.groupMillis = Long.parseLong(value);
+                    break;
+                case "-stats":
+                    options.statsFile = value;
+                    break;
+                case "-input-format":
+                    options.binaryInput = isBinary(value);
+                    break;
+                case "-output-format":
+                    options.binaryOutput = isBinary(value);
+                    break;
+                case "-port":
+                    options.port = Integer.parseInt(value);
+                    if (options.port < 0 || options.port > 65535)
+                        throw new IllegalArgumentException("Port must be in [0, 65535]");
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + flag);
+            }
+        }
+        if (options.storeFile != null && (options.restoreFile != null || options.journalFile != null))
+            throw new IllegalArgumentException("-store continues from its own file, it can not be combined with -restore or -journal");
+        if (options.storeFile != null && options.shards > 1)
+            throw new IllegalArgumentException("-store has a single truck location map, it can not be used with -shards");
+        if (options.statsFile != null && options.shadow != null) // Counters are static, both simulators would add to them
+            throw new IllegalArgumentException("-stats counts the commands of one simulator, it can not be used with -shadow");
+        if (options.port != -1){
+            if (options.pipeline)
+                throw new IllegalArgumentException("-pipeline reads an input file, it can not be used with -port");
+            if (options.binaryInput || options.binaryOutput) // Every connection chooses its format with its first bytes
+                throw new IllegalArgumentException("-input-format and -output-format can not be used with -port");
+            if (i != args.length)
+                throw new IllegalArgumentException("-port serves commands over TCP, it does not take files");
+            return options;
+        }
+        if (args.length - i != 2 && (outputRequired || args.length - i != 1))
+            throw new IllegalArgumentException(outputRequired ? "Expected an input and an output file" : "Expected an input file and an optional output file");
+        options.inputFile = args[i];
+        if (args.length - i == 2)
+            options.outputFile = args[i + 1];
+        return options;
+    }
+
+    private static boolean isBinary(String format){
+        switch (format){
+            case "text":
+                return false;
+            case "binary":
+                return true;
+            default:
+                throw new IllegalArgumentException("Unknown format " + format);
+        }
+    }
+
+    private static String checkIndex(String name){
+        // Fails before any file is opened if the index name is wrong
+        switch (name){
+            case "avl":
+            case "arrayavl":
+            case "bitset":
+            case "treemap":
+            case "array":
+                return name;
+            default:
+                throw new IllegalArgumentException("Unknown index " + name);
+        }
+    }
+
+    public TruckSimulator createSimulator(String index){
+        // Simulator that can be shared by threads if there are several shards, every shard has its own index
+        if (shards == 1)
+            return new TruckSimulator(createIndex(index));
+        return new ConcurrentTruckSimulator(new ShardedLotIndex(shards, universe, () -> createIndex(index)));
+    }
+
+    public LotIndex createIndex(String name){
+        switch (name){
+            case "arrayavl":
+                return new ArrayAVLTree();
+            case "bitset":
+                return new BitsetLotIndex(universe);
+            case "treemap":
+                return new TreeMapLotIndex();
+            case "array":
+                return new SortedArrayLotIndex();
+            default:
+                return new AVLTree();
+        }
+    }
+}
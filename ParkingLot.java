@@ -1,16 +1,27 @@
+import java.nio.ByteBuffer;
 
 public class ParkingLot implements Comparable<ParkingLot>{
+    // Flags describing which commands can use this parking lot, AVLTree combines them to skip unsuitable subtrees
+    public static final int FREE = 1; // A truck can be added, used by addTruck
+    public static final int WAITING = 2; // There is a truck in the waiting section, used by ready
+    public static final int READY = 4; // There is a truck in the ready section, used by load
+
     private final int capacityConstraint;
     private final int truckLimit;
 
-    private final MyQueue waitingSection;
-    private final MyQueue readySection;
+    private final TruckQueue waitingSection;
+    private final TruckQueue readySection;
 
     ParkingLot(int capacityConstraint, int truckLimit){
+        this(capacityConstraint, truckLimit, new MyQueue(truckLimit), new MyQueue(truckLimit));
+    }
+
+    ParkingLot(int capacityConstraint, int truckLimit, TruckQueue waitingSection, TruckQueue readySection){
+        // Sections are given by a TruckStore when trucks are kept outside the heap
         this.capacityConstraint = capacityConstraint;
         this.truckLimit = truckLimit;
-        waitingSection = new MyQueue(truckLimit);
-        readySection = new MyQueue(truckLimit);
+        this.waitingSection = waitingSection;
+        this.readySection = readySection;
     }
 
     // compareTo method is needed in order to compare parking lots easily
@@ -30,29 +41,141 @@ public class ParkingLot implements Comparable<ParkingLot>{
         return !waitingSection.isEmpty();
     }
 
-    // Given ID, capacity, load, creates a truck and adds to waiting section, if no space left, not added
+    // Given ID, capacity, load, adds the truck to waiting section, if no space left, not added
     public void addTruck(int ID, int capacity, int load){
-        waitingSection.enqueue(new Truck(ID, capacity, load));
+        waitingSection.enqueue(ID, capacity, load);
+    }
+
+    // Values of the first truck in the ready section, only valid if it is not empty
+    public int getReadyTruckID(){
+        return readySection.getFirstID();
     }
 
-    public Truck getTruck(){
-        return readySection.dequeue();
+    public int getReadyTruckCapacity(){
+        return readySection.getFirstCapacity();
+    }
+
+    public int getReadyTruckLoad(){
+        return readySection.getFirstLoad();
+    }
+
+    public void removeReadyTruck(){
+        readySection.dequeue();
     }
 
     public boolean isReadyEmpty(){
         return readySection.isEmpty();
     }
 
-    public Truck readyTruck(){
-        Truck truck = waitingSection.dequeue(); // Poll from waiting section
-        readySection.enqueue(truck); // Add to ready section
-        return truck;
+    public int readyTruck(){
+        // Moves the first truck in waiting section to ready section and returns its ID
+        int ID = waitingSection.getFirstID();
+        readySection.enqueue(ID, waitingSection.getFirstCapacity(), waitingSection.getFirstLoad()); // Add to ready section
+        waitingSection.dequeue(); // Poll from waiting section
+        return ID;
+    }
+
+    private TruckQueue section(int section){
+        // Sections are named by their flags, WAITING or READY
+        return section == READY ? readySection : waitingSection;
+    }
+
+    public int getLastSequence(int section){
+        // Sequence number of the truck that was added to the section last, see TruckQueue
+        return section(section).getLastSequence();
+    }
+
+    public int getFirstSequence(int section){
+        return section(section).getFirstSequence();
+    }
+
+    public boolean removeTruck(int section, int sequence){
+        // Removes the truck with this sequence number from the section, false if it is not there
+        return section(section).remove(sequence);
+    }
+
+    public void putTrucks(TruckLocations locations){
+        // Records the location of every truck of the parking lot
+        putTrucks(WAITING, locations);
+        putTrucks(READY, locations);
+    }
+
+    private void putTrucks(int section, TruckLocations locations){
+        TruckQueue queue = section(section);
+        for (int sequence = queue.getFirstSequence(); sequence - queue.getLastSequence() <= 0; sequence++)
+            if (queue.contains(sequence))
+                locations.put(queue.getIDAt(sequence), this, section, sequence);
+    }
+
+    public void removeTrucks(TruckLocations locations){
+        // Forgets the location of every truck of the parking lot, used when it is deleted with its trucks
+        removeTrucks(WAITING, locations);
+        removeTrucks(READY, locations);
+    }
+
+    private void removeTrucks(int section, TruckLocations locations){
+        TruckQueue queue = section(section);
+        for (int sequence = queue.getFirstSequence(); sequence - queue.getLastSequence() <= 0; sequence++)
+            if (queue.contains(sequence))
+                locations.remove(queue.getIDAt(sequence));
+    }
+
+    public void compact(TruckLocations locations){
+        // Drops the tombstones of a section once they outnumber its trucks, trucks get new sequence numbers so they are recorded again
+        // Called after every removal, so a section never has more tombstones than its limit
+        for (int section = WAITING; section <= READY; section <<= 1){
+            if (section(section).needsCompaction()){
+                section(section).compact();
+                putTrucks(section, locations);
+            }
+        }
+    }
+
+    public int getFlags(){
+        int flags = 0;
+        if (canAddTruck())
+            flags |= FREE;
+        if (canBeReady())
+            flags |= WAITING;
+        if (!isReadyEmpty())
+            flags |= READY;
+        return flags;
     }
 
     public int getTruckCount(){
         return waitingSection.getSize() + readySection.getSize();
     }
 
+    public int getSnapshotSize(){
+        // Bytes written by writeTo
+        return 16 + 12 * getTruckCount();
+    }
+
+    public void writeTo(ByteBuffer buffer){
+        // capacityConstraint, truckLimit, then the waiting and ready sections in FIFO order, see TruckQueue.writeTo
+        buffer.putInt(capacityConstraint).putInt(truckLimit);
+        waitingSection.writeTo(buffer);
+        readySection.writeTo(buffer);
+    }
+
+    public ParkingLot copy(){
+        // Same parking lot with its trucks in new heap sections, copied through the snapshot format
+        ByteBuffer buffer = ByteBuffer.allocate(getSnapshotSize());
+        writeTo(buffer);
+        buffer.flip();
+        return readFrom(buffer);
+    }
+
+    public static ParkingLot readFrom(ByteBuffer buffer){
+        // Parking lot written by writeTo
+        ParkingLot p = new ParkingLot(buffer.getInt(), buffer.getInt());
+        p.waitingSection.readFrom(buffer);
+        p.readySection.readFrom(buffer);
+        if (p.getTruckCount() > p.truckLimit)
+            throw new IllegalArgumentException("Parking lot " + p.capacityConstraint + " has more trucks than its limit");
+        return p;
+    }
+
     public int getCapacityConstraint(){
         return capacityConstraint;
     }
@@ -0,0 +1,98 @@
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Scanner;
+
+public class ParserBenchmark {
+    // Compares CommandParser with the old Scanner + String.split input path and with BinaryCommandParser
+    // Usage: java ParserBenchmark <input file> [rounds]
+    // Binary version of the input is written next to it once, like FormatConverter does
+
+    private static long checksum; // Operands are summed here so that parse-only runs can not be optimized away
+
+    public static void main(String[] args) throws IOException {
+        File inputFile = new File(args[0]);
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        CommandHandler parseOnly = (command, first, second, text) -> checksum += command + first + second;
+        File binaryFile = new File(inputFile.getPath() + ".bin");
+        try (FileChannel input = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(binaryFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)){
+            BinaryCommandWriter writer = new BinaryCommandWriter(output);
+            new CommandParser(input).parse(writer);
+            writer.flush();
+        }
+        System.out.printf("text %,d bytes, binary %,d bytes%n", inputFile.length(), binaryFile.length());
+
+        for (int round = 1; round <= rounds; round++){
+            // First rounds also warm up the JIT, so results of the later rounds are more reliable
+            long scannerParse = time(() -> scanner(inputFile, parseOnly));
+            long byteParse = time(() -> bytes(inputFile, parseOnly));
+            long binaryParse = time(() -> binary(binaryFile, parseOnly));
+            long scannerTotal = time(() -> scanner(inputFile, simulation()));
+            long byteTotal = time(() -> bytes(inputFile, simulation()));
+            long binaryTotal = time(() -> binary(binaryFile, simulation()));
+
+            System.out.printf("round %d: parse only scanner %d ms, bytes %d ms, binary %d ms | with simulation scanner %d ms, bytes %d ms, binary %d ms%n",
+                    round, scannerParse, byteParse, binaryParse, scannerTotal, byteTotal, binaryTotal);
+        }
+        binaryFile.delete();
+        System.out.println("checksum " + checksum);
+    }
+
+    private interface Run {
+        void run() throws IOException;
+    }
+
+    private static long time(Run run) throws IOException {
+        long start = System.nanoTime();
+        run.run();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static CommandHandler simulation(){
+        // Fresh simulator for every run, responses are formatted but thrown away
+        return Main.simulate(new TruckSimulator(), new ChannelResponseWriter(Channels.newChannel(OutputStream.nullOutputStream())));
+    }
+
+    private static void bytes(File inputFile, CommandHandler handler) throws IOException {
+        try (FileChannel input = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)){
+            new CommandParser(input).parse(handler);
+        }
+    }
+
+    private static void binary(File binaryFile, CommandHandler handler) throws IOException {
+        try (FileChannel input = FileChannel.open(binaryFile.toPath(), StandardOpenOption.READ)){
+            new BinaryCommandParser(input).parse(handler);
+        }
+    }
+
+    private static void scanner(File inputFile, CommandHandler handler) throws IOException {
+        // The input loop Main used before CommandParser
+        Scanner reader = new Scanner(inputFile);
+        String line;
+        String[] temp;
+        while (reader.hasNextLine()){
+            line = reader.nextLine();
+            temp = line.split(" ");
+            String command = temp[0];
+
+            if (command.equals("create_parking_lot"))
+                handler.handle(CommandHandler.CREATE_PARKING_LOT, Integer.parseInt(temp[1]), Integer.parseInt(temp[2]), null);
+            else if (command.equals("add_truck"))
+                handler.handle(CommandHandler.ADD_TRUCK, Integer.parseInt(temp[1]), Integer.parseInt(temp[2]), null);
+            else if (command.equals("delete_parking_lot"))
+                handler.handle(CommandHandler.DELETE_PARKING_LOT, Integer.parseInt(temp[1]), 0, null);
+            else if (command.equals("ready"))
+                handler.handle(CommandHandler.READY, Integer.parseInt(temp[1]), 0, null);
+            else if (command.equals("load"))
+                handler.handle(CommandHandler.LOAD, Integer.parseInt(temp[1]), Integer.parseInt(temp[2]), null);
+            else if (command.equals("count"))
+                handler.handle(CommandHandler.COUNT, Integer.parseInt(temp[1]), 0, null);
+            else if (command.equals("count_range"))
+                handler.handle(CommandHandler.COUNT_RANGE, Integer.parseInt(temp[1]), Integer.parseInt(temp[2]), null);
+        }
+        reader.close();
+    }
+}
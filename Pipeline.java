@@ -0,0 +1,147 @@
+import java.io.IOException;
+import java.util.function.Function;
+
+public class Pipeline {
+    // Runs a command file on three threads, the calling thread parses, a simulator thread runs the commands in input order
+    // and a writer thread formats and writes the responses, so the simulator never waits for reading or writing the files
+    // Stages are connected by RecordRings, rings keep the order of their records so the output is the same as with one thread
+
+    private static final int RING_SIZE = 1 << 16; // Records in each ring
+    private static final int END = -1; // Code of the last record of a ring
+
+    // Codes of the response records
+    private static final int VALUE = 0;
+    private static final int PAIR = 1;
+    private static final int TEXT = 2;
+    private static final int LINE_END = 3;
+
+    private final RecordRing commands = new RecordRing(RING_SIZE); // Command code, both operands packed into the value and the text operand
+    private final RecordRing responses = new RecordRing(RING_SIZE); // Items of the responses like the calls of a ResponseSink
+    private Throwable failure; // First exception of any stage
+
+    public static void run(CommandSource parser, Function<ResponseSink, CommandHandler> simulator, ResponseWriter out) throws IOException {
+        // simulator gives the handler that runs the commands and writes the responses to the given sink
+        Pipeline pipeline = new Pipeline();
+        pipeline.start(parser, simulator.apply(pipeline.new RingSink()), out);
+    }
+
+    private void start(CommandSource parser, CommandHandler handler, ResponseWriter out) throws IOException {
+        Thread simulatorThread = new Thread(() -> simulate(handler), "simulator");
+        Thread writerThread = new Thread(() -> write(out), "writer");
+        simulatorThread.start();
+        writerThread.start();
+
+        try{
+            parser.parse((command, first, second, text) -> commands.put(command, ((long) first << 32) | (second & 0xFFFFFFFFL), text));
+        }catch (Throwable e){
+            fail(e);
+        }finally{
+            commands.put(END, 0, null);
+            commands.publish();
+        }
+
+        try{
+            simulatorThread.join();
+            writerThread.join();
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the pipeline", e);
+        }
+
+        Throwable e = getFailure();
+        if (e instanceof IOException)
+            throw (IOException) e;
+        if (e instanceof RuntimeException)
+            throw (RuntimeException) e;
+        if (e instanceof Error)
+            throw (Error) e;
+    }
+
+    private void simulate(CommandHandler handler){
+        try{
+            while (true){
+                if (commands.isEmpty())
+                    responses.publish(); // Writer should not wait for responses while the simulator waits for commands
+                commands.await();
+                int command = commands.code();
+                long operands = commands.value();
+                String text = commands.text();
+                commands.advance();
+                if (command == END)
+                    break;
+                handler.handle(command, (int) (operands >> 32), (int) operands, text);
+            }
+        }catch (Throwable e){
+            fail(e);
+            commands.close(); // Parser does not have to wait for this thread anymore
+        }finally{
+            responses.put(END, 0, null);
+            responses.publish();
+        }
+    }
+
+    private void write(ResponseWriter out){
+        try{
+            while (true){
+                responses.await();
+                int code = responses.code();
+                long value = responses.value();
+                String text = responses.text();
+                responses.advance();
+                switch (code){
+                    case VALUE:
+                        out.value(value);
+                        break;
+                    case PAIR:
+                        out.pair((int) (value >> 32), (int) value);
+                        break;
+                    case TEXT:
+                        out.text(text);
+                        break;
+                    case LINE_END:
+                        out.end();
+                        break;
+                    default: // END, every response has been formatted
+                        out.flush();
+                        return;
+                }
+            }
+        }catch (Throwable e){
+            fail(e);
+            responses.close(); // Simulator does not have to wait for this thread anymore
+        }
+    }
+
+    private synchronized void fail(Throwable e){
+        if (failure == null) // Later exceptions are usually caused by the first one
+            failure = e;
+    }
+
+    private synchronized Throwable getFailure(){
+        return failure;
+    }
+
+    private class RingSink implements ResponseSink {
+        // Turns the responses of the simulator into records of the responses ring, only used by the simulator thread
+
+        @Override
+        public void value(long value){
+            responses.put(VALUE, value, null);
+        }
+
+        @Override
+        public void pair(int first, int second){
+            responses.put(PAIR, ((long) first << 32) | (second & 0xFFFFFFFFL), null);
+        }
+
+        @Override
+        public void text(String text){
+            responses.put(TEXT, 0, text);
+        }
+
+        @Override
+        public void end(){
+            responses.put(LINE_END, 0, null);
+        }
+    }
+}
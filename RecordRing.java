@@ -0,0 +1,137 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+public class RecordRing {
+    // Lock-free ring buffer between exactly one producer thread and one consumer thread
+    // A record is an int code, a long value and a rarely used text, slots are preallocated so nothing is allocated per record
+    // Producer publishes records in batches and consumer releases them in batches, so the shared positions are rarely written
+    // A side that has to wait spins for a short time, then yields and finally parks, so it also works with fewer cores than threads
+
+    private static final int PUBLISH_BATCH = 64; // Records written or read before the other side is told about them
+    private static final int SPINS = 100; // Tries with Thread.onSpinWait before yielding
+    private static final int YIELDS = 100; // Tries with Thread.yield before parking
+    private static final long PARK_NANOS = 20_000;
+
+    // Indices in positions, producer's and consumer's positions are 128 bytes apart so that they are not in the same cache line
+    // Only PUBLISHED_TAIL and PUBLISHED_HEAD are read by the other side, the rest are the sides' own copies
+    private static final int PUBLISHED_TAIL = 16; // Records below this can be read by the consumer
+    private static final int TAIL = 17; // Next slot the producer writes
+    private static final int HEAD_CACHE = 18; // Last PUBLISHED_HEAD the producer has seen
+    private static final int PUBLISHED_HEAD = 32; // Slots below this can be written again by the producer
+    private static final int HEAD = 33; // Next slot the consumer reads
+    private static final int TAIL_CACHE = 34; // Last PUBLISHED_TAIL the consumer has seen
+
+    private final AtomicLongArray positions = new AtomicLongArray(48);
+    private final int capacity;
+    private final int mask;
+    private final int[] codes;
+    private final long[] values;
+    private final String[] texts;
+    private volatile boolean closed; // Set by the consumer when it stops reading, producer drops records afterwards
+
+    RecordRing(int capacity){
+        // Capacity is rounded up to a power of two so that slots can be found with a mask
+        int size = 2;
+        while (size < capacity)
+            size <<= 1;
+        this.capacity = size;
+        mask = size - 1;
+        codes = new int[size];
+        values = new long[size];
+        texts = new String[size];
+    }
+
+    // Producer side
+
+    public void put(int code, long value, String text){
+        long tail = positions.getPlain(TAIL);
+        if (tail - positions.getPlain(HEAD_CACHE) == capacity && !waitForSpace(tail))
+            return; // Consumer has stopped, nobody will read the record
+        int slot = (int) tail & mask;
+        codes[slot] = code;
+        values[slot] = value;
+        texts[slot] = text;
+        positions.setPlain(TAIL, ++tail);
+        if (tail - positions.getPlain(PUBLISHED_TAIL) >= PUBLISH_BATCH)
+            publish();
+    }
+
+    public void publish(){
+        // Makes every written record visible to the consumer, must be called after the last record
+        positions.setRelease(PUBLISHED_TAIL, positions.getPlain(TAIL));
+    }
+
+    private boolean waitForSpace(long tail){
+        // Waits until the consumer has released the oldest slot, returns false if the consumer has stopped
+        publish(); // Consumer may be waiting for the records that fill the ring
+        for (int tries = 0; ; tries++){
+            long head = positions.getAcquire(PUBLISHED_HEAD);
+            if (tail - head < capacity){
+                positions.setPlain(HEAD_CACHE, head);
+                return true;
+            }
+            if (closed)
+                return false;
+            backOff(tries);
+        }
+    }
+
+    // Consumer side
+
+    public boolean isEmpty(){
+        // Whether there is no record to read right now
+        long head = positions.getPlain(HEAD);
+        if (head != positions.getPlain(TAIL_CACHE))
+            return false;
+        long tail = positions.getAcquire(PUBLISHED_TAIL);
+        positions.setPlain(TAIL_CACHE, tail);
+        return head == tail;
+    }
+
+    public void await(){
+        // Waits until there is a record to read
+        if (!isEmpty())
+            return;
+        positions.setRelease(PUBLISHED_HEAD, positions.getPlain(HEAD)); // Producer may be waiting for the slots already read
+        for (int tries = 0; isEmpty(); tries++)
+            backOff(tries);
+    }
+
+    // Current record, only valid after await
+    public int code(){
+        return codes[(int) positions.getPlain(HEAD) & mask];
+    }
+
+    public long value(){
+        return values[(int) positions.getPlain(HEAD) & mask];
+    }
+
+    public String text(){
+        return texts[(int) positions.getPlain(HEAD) & mask];
+    }
+
+    public void advance(){
+        // Moves to the next record, the slot of the current one can be reused by the producer
+        long head = positions.getPlain(HEAD);
+        int slot = (int) head & mask;
+        if (texts[slot] != null) // Let the text be garbage collected
+            texts[slot] = null;
+        positions.setPlain(HEAD, ++head);
+        if (head - positions.getPlain(PUBLISHED_HEAD) >= PUBLISH_BATCH)
+            positions.setRelease(PUBLISHED_HEAD, head);
+    }
+
+    public void close(){
+        // Called by the consumer if it stops before the last record, so that the producer never waits for it
+        closed = true;
+    }
+
+    private static void backOff(int tries){
+        if (tries < SPINS)
+            Thread.onSpinWait();
+        else if (tries < SPINS + YIELDS)
+            Thread.yield();
+        else
+            LockSupport.parkNanos(PARK_NANOS);
+    }
+}
@@ -0,0 +1,113 @@
+import java.util.Arrays;
+
+public class RecordingSink implements ResponseSink {
+    // Keeps the items of the responses in memory so that they can be compared and written later
+    // Arrays are reused, so recording does not allocate once they are large enough
+
+    private static final byte VALUE = 0;
+    private static final byte PAIR = 1;
+    private static final byte END = 2;
+    private static final byte TEXT = 3;
+
+    private byte[] kinds = new byte[64]; // Kind of every recorded item
+    private long[] firsts = new long[64]; // Value of a VALUE item, or the first number of a PAIR item
+    private int[] seconds = new int[64]; // Second number of a PAIR item
+    private String[] texts = new String[64]; // Text of a TEXT item
+    private int size; // Number of recorded items
+    private int lines; // Number of recorded ends
+
+    @Override
+    public void value(long value){
+        add(VALUE, value, 0);
+    }
+
+    @Override
+    public void pair(int first, int second){
+        add(PAIR, first, second);
+    }
+
+    @Override
+    public void text(String text){
+        add(TEXT, 0, 0);
+        texts[size - 1] = text;
+    }
+
+    @Override
+    public void end(){
+        add(END, 0, 0);
+        lines++;
+    }
+
+    private void add(byte kind, long first, int second){
+        if (size == kinds.length){ // Arrays are full, double them
+            kinds = Arrays.copyOf(kinds, size * 2);
+            firsts = Arrays.copyOf(firsts, size * 2);
+            seconds = Arrays.copyOf(seconds, size * 2);
+            texts = Arrays.copyOf(texts, size * 2);
+        }
+        kinds[size] = kind;
+        firsts[size] = first;
+        seconds[size] = second;
+        size++;
+    }
+
+    public int getLines(){
+        return lines;
+    }
+
+    public boolean sameAs(RecordingSink other){
+        if (size != other.size)
+            return false;
+        for (int i = 0; i < size; i++)
+            if (kinds[i] != other.kinds[i] || firsts[i] != other.firsts[i] || seconds[i] != other.seconds[i])
+                return false;
+            else if (kinds[i] == TEXT && !texts[i].equals(other.texts[i]))
+                return false;
+        return true;
+    }
+
+    public void replay(ResponseSink out){
+        // Sends every recorded item to out in the same order
+        for (int i = 0; i < size; i++){
+            if (kinds[i] == VALUE)
+                out.value(firsts[i]);
+            else if (kinds[i] == PAIR)
+                out.pair((int) firsts[i], seconds[i]);
+            else if (kinds[i] == TEXT)
+                out.text(texts[i]);
+            else
+                out.end();
+        }
+    }
+
+    public void clear(){
+        Arrays.fill(texts, 0, size, null); // Let the texts be garbage collected
+        size = 0;
+        lines = 0;
+    }
+
+    @Override
+    public String toString(){
+        // Recorded responses as they would be written to the output file, only used for error messages
+        StringBuilder str = new StringBuilder();
+        boolean lineStarted = false;
+        for (int i = 0; i < size; i++){
+            if (kinds[i] == END){
+                str.append('\n');
+                lineStarted = false;
+                continue;
+            }
+            if (lineStarted)
+                str.append(" - ");
+            lineStarted = true;
+            if (kinds[i] == TEXT){
+                str.append(texts[i]);
+                continue;
+            }
+            str.append(firsts[i]);
+            if (kinds[i] == PAIR)
+                str.append(' ').append(seconds[i]);
+        }
+        return str.toString();
+    }
+}
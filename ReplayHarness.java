@@ -0,0 +1,96 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class ReplayHarness {
+    // Runs a command file through TruckSimulator and reports throughput, per command latency percentiles, peak heap and GC time
+    // Usage: java ReplayHarness [Main options] <input file> [output file]
+    // Responses are formatted like Main does, but thrown away unless an output file is given
+
+    public static void main(String[] args) throws IOException {
+        Options options;
+        try{
+            options = Options.parse(args, false);
+            if (options.port != -1)
+                throw new IllegalArgumentException("ReplayHarness runs an input file, it can not use -port");
+        }catch (IllegalArgumentException e){
+            System.out.println(e.getMessage());
+            System.out.println("Usage: java ReplayHarness [Main options] <input file> [output file]");
+            return;
+        }
+
+        LatencyHistogram[] histograms = new LatencyHistogram[CommandHandler.COMMANDS];
+        for (int i = 0; i < histograms.length; i++)
+            histograms[i] = new LatencyHistogram();
+
+        WritableByteChannel output = options.outputFile == null
+                ? Channels.newChannel(OutputStream.nullOutputStream())
+                : FileChannel.open(Paths.get(options.outputFile), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        ResponseWriter out = options.binaryOutput ? new BinaryResponseWriter(output) : new ChannelResponseWriter(output);
+        CommandHandler simulation = Main.simulate(options.createSimulator(options.index), out);
+        CommandHandler timed = (command, first, second, text) -> {
+            long start = System.nanoTime();
+            simulation.handle(command, first, second, text);
+            histograms[command].record(System.nanoTime() - start);
+        };
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            pool.resetPeakUsage();
+        long gcTime = gcTime();
+        long gcCount = gcCount();
+        long start = System.nanoTime();
+
+        try (FileChannel input = FileChannel.open(Paths.get(options.inputFile), StandardOpenOption.READ)){
+            (options.binaryInput ? new BinaryCommandParser(input) : new CommandParser(input)).parse(timed);
+        }
+        out.flush();
+
+        long elapsed = System.nanoTime() - start;
+        gcTime = gcTime() - gcTime;
+        gcCount = gcCount() - gcCount;
+        long peakHeap = 0; // Sum of the peaks of every heap pool, pools peak at different times so this is an upper bound
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType() == MemoryType.HEAP)
+                peakHeap += pool.getPeakUsage().getUsed();
+
+        LatencyHistogram all = new LatencyHistogram();
+        for (LatencyHistogram histogram : histograms)
+            all.add(histogram);
+
+        System.out.printf("%,d commands in %.3f s, %,.0f commands/s%n", all.getCount(), elapsed / 1e9, all.getCount() * 1e9 / elapsed);
+        System.out.printf("peak heap %,d MB, %d GCs taking %,d ms%n", peakHeap >> 20, gcCount, gcTime);
+        System.out.printf("%-20s %12s %10s %10s %10s %10s %12s%n", "latency (ns)", "count", "mean", "p50", "p99", "p999", "max");
+        for (int i = 0; i < histograms.length; i++)
+            print(CommandParser.nameOf(i), histograms[i]);
+        print("all", all);
+    }
+
+    private static void print(String name, LatencyHistogram histogram){
+        if (histogram.getCount() == 0)
+            return;
+        System.out.printf("%-20s %,12d %,10.0f %,10d %,10d %,10d %,12d%n", name, histogram.getCount(), histogram.getMean(),
+                histogram.percentile(50), histogram.percentile(99), histogram.percentile(99.9), histogram.getMax());
+    }
+
+    private static long gcTime(){
+        long time = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+            time += Math.max(0, collector.getCollectionTime());
+        return time;
+    }
+
+    private static long gcCount(){
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+            count += Math.max(0, collector.getCollectionCount());
+        return count;
+    }
+}
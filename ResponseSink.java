@@ -0,0 +1,16 @@
+public interface ResponseSink {
+    // Receives the response of every command as primitive values, one response per line
+    // Items of the same response are separated by " - ", like the trucks of a load response
+
+    // Adds an item with a single number, like the capacity of a parking lot or a count
+    void value(long value);
+
+    // Adds an item with two numbers separated by a space, like the ID of a truck and the capacity of its parking lot
+    void pair(int first, int second);
+
+    // Adds an item with text, like the section of a located truck or the stats
+    void text(String text);
+
+    // Ends the response of the current command
+    void end();
+}
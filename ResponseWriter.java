@@ -0,0 +1,7 @@
+public interface ResponseWriter extends ResponseSink {
+    // Sink that encodes responses into a buffer and writes them to a channel, ChannelResponseWriter writes text lines and
+    // BinaryResponseWriter the binary encoding
+
+    // Writes every buffered byte to the channel
+    void flush();
+}
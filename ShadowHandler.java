@@ -0,0 +1,35 @@
+import java.io.IOException;
+
+public class ShadowHandler implements CommandHandler {
+    // Runs every command on two simulators with different indexes and compares their responses
+    // Responses of the primary one are written to out, the first difference stops the run with a ShadowMismatchException
+
+    private final CommandHandler primary;
+    private final CommandHandler shadow;
+    private final RecordingSink primaryResponses = new RecordingSink();
+    private final RecordingSink shadowResponses = new RecordingSink();
+    private final ResponseSink out;
+    private long line; // Number of output lines written so far
+
+    ShadowHandler(TruckSimulator primary, TruckSimulator shadow, ResponseSink out){
+        this.primary = Main.simulate(primary, primaryResponses);
+        this.shadow = Main.simulate(shadow, shadowResponses);
+        this.out = out;
+    }
+
+    @Override
+    public void handle(int command, int first, int second, String text) throws IOException {
+        primary.handle(command, first, second, text);
+        shadow.handle(command, first, second, text);
+
+        // Stats are shared by both simulators and have timings, so the stats command is the only one that can differ
+        if (command != CommandHandler.STATS && !primaryResponses.sameAs(shadowResponses))
+            throw new ShadowMismatchException("Output line " + (line + 1) + " differs, primary: "
+                    + primaryResponses.toString().trim() + ", shadow: " + shadowResponses.toString().trim());
+
+        line += primaryResponses.getLines();
+        primaryResponses.replay(out);
+        primaryResponses.clear();
+        shadowResponses.clear();
+    }
+}
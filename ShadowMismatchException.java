@@ -0,0 +1,8 @@
+public class ShadowMismatchException extends RuntimeException {
+    // Thrown by ShadowHandler when the shadow simulator gives a different response than the primary one
+    // Callers stop the run on it, other runtime exceptions keep their own handling
+
+    ShadowMismatchException(String message){
+        super(message);
+    }
+}
@@ -0,0 +1,141 @@
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+public class ShardedLotIndex implements LotIndex {
+    // Parking lots split into shards by capacity range, shard i has the capacities in [i * width, (i + 1) * width)
+    // Capacities below 0 are in the first shard and capacities above the universe are in the last one
+    // Every shard is an independent LotIndex, so different shards can be changed by different threads at the same time
+    // Searches start in the shard of the capacity and continue in the next shards in the direction of the search
+
+    private final LotIndex[] shards;
+    private final int width; // Capacities in each shard
+
+    ShardedLotIndex(int count, int universe, Supplier<LotIndex> factory){
+        shards = new LotIndex[count];
+        for (int i = 0; i < count; i++)
+            shards[i] = factory.get();
+        width = Math.max(1, (int) (((long) universe + count - 1) / count));
+    }
+
+    public int shardOf(int capacity){
+        if (capacity < 0)
+            return 0;
+        return Math.min(shards.length - 1, capacity / width);
+    }
+
+    public int getShardCount(){
+        return shards.length;
+    }
+
+    public LotIndex getShard(int shard){
+        return shards[shard];
+    }
+
+    @Override
+    public void insert(ParkingLot p){
+        shards[shardOf(p.getCapacityConstraint())].insert(p);
+    }
+
+    @Override
+    public ParkingLot get(int capacity){
+        return shards[shardOf(capacity)].get(capacity);
+    }
+
+    @Override
+    public boolean accepts(int capacity){
+        return shards[shardOf(capacity)].accepts(capacity);
+    }
+
+    @Override
+    public void build(ParkingLot[] lots){
+        // Parking lots of a shard are next to each other in lots, so each shard is built from its own part
+        int from = 0;
+        for (int shard = 0; shard < shards.length; shard++){
+            int to = from;
+            while (to < lots.length && shardOf(lots[to].getCapacityConstraint()) == shard)
+                to++;
+            shards[shard].build(Arrays.copyOfRange(lots, from, to));
+            from = to;
+        }
+    }
+
+    @Override
+    public void insertAll(ParkingLot[] lots){
+        // Same split as build
+        int from = 0;
+        for (int shard = 0; shard < shards.length; shard++){
+            int to = from;
+            while (to < lots.length && shardOf(lots[to].getCapacityConstraint()) == shard)
+                to++;
+            if (to > from)
+                shards[shard].insertAll(Arrays.copyOfRange(lots, from, to));
+            from = to;
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<ParkingLot> action){
+        for (LotIndex shard : shards)
+            shard.forEach(action);
+    }
+
+    @Override
+    public void delete(int capacity){
+        shards[shardOf(capacity)].delete(capacity);
+    }
+
+    @Override
+    public void update(ParkingLot p){
+        shards[shardOf(p.getCapacityConstraint())].update(p);
+    }
+
+    @Override
+    public ParkingLot findSmallerThan(int capacity, int flag){
+        // Shards below the shard of capacity only have smaller capacities, so the first parking lot found is the greatest one
+        for (int shard = shardOf(capacity); shard >= 0; shard--){
+            ParkingLot p = shards[shard].findSmallerThan(capacity, flag);
+            if (p != null)
+                return p;
+        }
+        return null;
+    }
+
+    @Override
+    public ParkingLot findGreaterThan(int capacity, int flag){
+        // Mirror of findSmallerThan
+        for (int shard = shardOf(capacity); shard < shards.length; shard++){
+            ParkingLot p = shards[shard].findGreaterThan(capacity, flag);
+            if (p != null)
+                return p;
+        }
+        return null;
+    }
+
+    @Override
+    public long count(int capacity){
+        // Shards below the shard of capacity have no greater capacity
+        long sum = 0;
+        for (int shard = shardOf(capacity); shard < shards.length; shard++)
+            sum += shards[shard].count(capacity);
+        return sum;
+    }
+
+    @Override
+    public long countRange(int low, int high){
+        if (low > high) // Empty range
+            return 0;
+        long sum = 0;
+        for (int shard = shardOf(low); shard <= shardOf(high); shard++)
+            sum += shards[shard].countRange(low, high);
+        return sum;
+    }
+
+    @Override
+    public int getHeight(){
+        int height = -1;
+        for (LotIndex shard : shards)
+            height = Math.max(height, shard.getHeight());
+        return height;
+    }
+}
@@ -0,0 +1,280 @@
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SimulatorBenchmark {
+    // Microbenchmarks of the hot paths, results are operations per second and allocated bytes per operation
+    // Usage: java SimulatorBenchmark [max parking lot count, 1000000 by default] [indexes separated by commas, avl,arrayavl,bitset by default]
+    // Every benchmark is repeated, the first rounds only warm up the JIT and are not reported
+    // Allocated bytes come from the JVM's per thread allocation counter, so only the benchmark thread is measured
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+    private static final int QUEUE_OPERATIONS = 10_000_000;
+    private static final int LOADS_PER_ROUND = 10_000; // Trucks moved by load cascades in a round, divided between loads
+    private static final int TRUCKS_PER_LOT = 4;
+    private static final int CONCURRENT_LOTS = 100_000; // Parking lots of the concurrent count benchmark
+    private static final int CONCURRENT_SHARDS = 16;
+    private static final long CONCURRENT_MILLIS = 1000; // Length of a concurrent round, the first round of every size is a warm up
+
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static long blackhole; // Results are added here so that the JIT can not remove the measured work
+
+    private interface Benchmark {
+        // Prepares a round, not measured
+        default void setUp(){
+        }
+
+        // Runs a round and returns the number of operations done
+        long run();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int maxLots = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        String[] indexes = (args.length > 1 ? args[1] : "avl,arrayavl,bitset").split(",");
+
+        for (String index : indexes)
+            for (int lots = 1000; lots <= maxLots; lots *= 10)
+                indexBenchmarks(index, lots);
+
+        queueBenchmark();
+
+        for (String index : indexes)
+            for (int depth = 1; depth <= 1000; depth *= 10)
+                loadBenchmark(index, depth);
+
+        for (String index : indexes)
+            for (int readers = 1; readers <= Runtime.getRuntime().availableProcessors(); readers *= 2)
+                concurrentCountBenchmark(index, readers);
+
+        System.out.println("blackhole " + blackhole);
+    }
+
+    private static void measure(String name, Benchmark benchmark){
+        long operations = 0;
+        long nanos = 0;
+        long bytes = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++){
+            benchmark.setUp();
+            long startBytes = THREADS.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            long done = benchmark.run();
+            long time = System.nanoTime() - start;
+            long allocated = THREADS.getCurrentThreadAllocatedBytes() - startBytes;
+            if (round >= WARMUP_ROUNDS){
+                operations += done;
+                nanos += time;
+                bytes += allocated;
+            }
+        }
+        System.out.printf("%-36s %,16.0f ops/s %12.1f B/op%n", name, operations * 1e9 / nanos, (double) bytes / operations);
+    }
+
+    private static LotIndex createIndex(String name, int universe){
+        Options options = new Options();
+        options.universe = universe;
+        return options.createIndex(name);
+    }
+
+    private static void indexBenchmarks(String index, int size){
+        // Keys are distinct multiples of 4 in random order, queries are random numbers in the same range
+        Random random = new Random(size);
+        int universe = size * 4;
+        ParkingLot[] lots = new ParkingLot[size];
+        for (int i = 0; i < size; i++)
+            lots[i] = new ParkingLot(i * 4, 1);
+        for (int i = size - 1; i > 0; i--){ // Shuffle
+            int j = random.nextInt(i + 1);
+            ParkingLot temp = lots[i];
+            lots[i] = lots[j];
+            lots[j] = temp;
+        }
+        int[] queries = new int[size];
+        for (int i = 0; i < size; i++)
+            queries[i] = random.nextInt(universe);
+        int[] nearbyQueries = new int[size]; // Each query is a few parking lots away from the previous one, like traces with locality
+        int walk = universe / 2;
+        for (int i = 0; i < size; i++){
+            walk = Math.floorMod(walk + random.nextInt(17) * 4 - 32, universe);
+            nearbyQueries[i] = walk;
+        }
+
+        String prefix = index + " " + size + " ";
+        LotIndex[] full = new LotIndex[1]; // Index with every parking lot, rebuilt when a benchmark changes it
+
+        measure(prefix + "insert", new Benchmark() {
+            public void setUp(){
+                full[0] = createIndex(index, universe);
+            }
+
+            public long run(){
+                for (ParkingLot p : lots)
+                    full[0].insert(p);
+                return size;
+            }
+        });
+
+        ParkingLot[] sorted = lots.clone();
+        Arrays.sort(sorted);
+        measure(prefix + "insertAll", new Benchmark() {
+            public void setUp(){
+                full[0] = createIndex(index, universe);
+            }
+
+            public long run(){
+                full[0].insertAll(sorted); // Same parking lots as insert, as a create_parking_lots command gives them
+                return size;
+            }
+        });
+
+        measure(prefix + "findSmallerThan", () -> {
+            for (int q : queries)
+                if (full[0].findSmallerThan(q, ParkingLot.FREE) != null)
+                    blackhole++;
+            return size;
+        });
+
+        measure(prefix + "findSmallerThan nearby", () -> {
+            for (int q : nearbyQueries)
+                if (full[0].findSmallerThan(q, ParkingLot.FREE) != null)
+                    blackhole++;
+            return size;
+        });
+
+        measure(prefix + "findGreaterThan", () -> {
+            for (int q : queries)
+                if (full[0].findGreaterThan(q, ParkingLot.FREE) != null)
+                    blackhole++;
+            return size;
+        });
+
+        measure(prefix + "count", () -> {
+            for (int q : queries)
+                blackhole += full[0].count(q);
+            return size;
+        });
+
+        measure(prefix + "update", () -> {
+            for (ParkingLot p : lots)
+                full[0].update(p);
+            return size;
+        });
+
+        measure(prefix + "delete", new Benchmark() {
+            public void setUp(){
+                full[0] = createIndex(index, universe);
+                for (ParkingLot p : lots)
+                    full[0].insert(p);
+            }
+
+            public long run(){
+                for (ParkingLot p : lots)
+                    full[0].delete(p.getCapacityConstraint());
+                return size;
+            }
+        });
+    }
+
+    private static void queueBenchmark(){
+        // Queue is kept half full, an operation is one enqueue and one dequeue
+        MyQueue queue = new MyQueue(1024);
+        for (int i = 0; i < 512; i++)
+            queue.enqueue(i, i, 0);
+
+        measure("MyQueue enqueue+dequeue", () -> {
+            for (int i = 0; i < QUEUE_OPERATIONS; i++){
+                queue.enqueue(i, i, 0);
+                blackhole += queue.getFirstID();
+                queue.dequeue();
+            }
+            return QUEUE_OPERATIONS;
+        });
+    }
+
+    private static void loadBenchmark(String index, int depth){
+        // Every load visits depth parking lots and moves every ready truck in them, an operation is one load command
+        int simulatorCount = Math.max(1, LOADS_PER_ROUND / (depth * TRUCKS_PER_LOT));
+        TruckSimulator[] simulators = new TruckSimulator[simulatorCount];
+        ResponseSink out = new NullResponseSink();
+        int loadAmount = TRUCKS_PER_LOT * 10 * depth * (depth + 1) / 2; // Exactly fills every ready truck
+
+        measure(index + " load depth " + depth, new Benchmark() {
+            public void setUp(){
+                // Parking lots 10, 20, ... each with TRUCKS_PER_LOT ready trucks of the same capacity
+                for (int s = 0; s < simulatorCount; s++){
+                    TruckSimulator simulator = new TruckSimulator(createIndex(index, 10 * depth + 1));
+                    int id = 0;
+                    for (int lot = 1; lot <= depth; lot++){
+                        simulator.createParkingLot(lot * 10, TRUCKS_PER_LOT);
+                        for (int t = 0; t < TRUCKS_PER_LOT; t++)
+                            simulator.addTruck(id++, lot * 10, out);
+                    }
+                    for (int t = 0; t < id; t++)
+                        simulator.ready(0, out);
+                    simulators[s] = simulator;
+                }
+            }
+
+            public long run(){
+                for (TruckSimulator simulator : simulators)
+                    simulator.load(0, loadAmount, out);
+                return simulatorCount;
+            }
+        });
+    }
+
+    private static void concurrentCountBenchmark(String index, int readers) throws InterruptedException {
+        // Reader threads count on a sharded simulator while one writer thread adds and readies trucks
+        // Result is the counts per second of all readers together, it should grow with readers as long as there are free cores
+        Options options = new Options();
+        options.universe = CONCURRENT_LOTS * 4;
+        options.shards = CONCURRENT_SHARDS;
+        TruckSimulator simulator = options.createSimulator(index);
+        for (int i = 0; i < CONCURRENT_LOTS; i++)
+            simulator.createParkingLot(i * 4, Integer.MAX_VALUE);
+
+        double opsPerSecond = 0;
+        for (int round = 0; round < 2; round++){
+            AtomicBoolean running = new AtomicBoolean(true);
+            int writerSeed = round;
+            AtomicLong counts = new AtomicLong();
+            Thread writer = new Thread(() -> {
+                Random random = new Random(writerSeed);
+                ResponseSink out = new NullResponseSink();
+                for (int id = 0; running.get(); id++){
+                    simulator.addTruck(id, random.nextInt(options.universe), out);
+                    simulator.ready(random.nextInt(options.universe), out);
+                }
+            });
+            Thread[] readerThreads = new Thread[readers];
+            for (int r = 0; r < readers; r++){
+                int seed = r;
+                readerThreads[r] = new Thread(() -> {
+                    Random random = new Random(seed);
+                    ResponseSink out = new NullResponseSink();
+                    long done = 0;
+                    while (running.get()){
+                        simulator.count(random.nextInt(options.universe), out);
+                        done++;
+                    }
+                    counts.addAndGet(done);
+                });
+            }
+
+            long start = System.nanoTime();
+            writer.start();
+            for (Thread reader : readerThreads)
+                reader.start();
+            Thread.sleep(CONCURRENT_MILLIS);
+            running.set(false);
+            writer.join();
+            for (Thread reader : readerThreads)
+                reader.join();
+            opsPerSecond = counts.get() * 1e9 / (System.nanoTime() - start);
+        }
+        System.out.printf("%-36s %,16.0f ops/s%n", index + " count with " + readers + " readers", opsPerSecond);
+    }
+}
@@ -0,0 +1,113 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+public class Snapshot {
+    // Binary file with every parking lot of a simulator, written by the snapshot command and read back with -restore
+    // Every number is a little endian int, the file starts with MAGIC, VERSION, the parking lot count and the journal sequence (long)
+    // Then every parking lot follows in ascending capacityConstraint order, see ParkingLot.writeTo
+    // Journal sequence is the number of journaled commands the snapshot contains, so a Journal can continue after it
+    // Parking lots are read in the order they are stored in, so the index can be built from them without any search
+
+    private static final int MAGIC = 0x534C5446; // "FTLS" in little endian bytes
+    private static final int VERSION = 2;
+    private static final int COUNT_POSITION = 8; // Position of the parking lot count in the file
+    private static final int BUFFER_SIZE = 1 << 20; // Bytes collected before writing to the file
+
+    public final ParkingLot[] lots; // Parking lots in ascending capacityConstraint order
+    public final long sequence; // Journal sequence when the snapshot was written
+
+    private Snapshot(ParkingLot[] lots, long sequence){
+        this.lots = lots;
+        this.sequence = sequence;
+    }
+
+    public static int write(LotIndex index, long sequence, Path path) throws IOException {
+        // Writes every parking lot of index to path and returns their count
+        // File is written under a temporary name and renamed at the end, so path is never a half written snapshot
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        int count;
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)){
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(0).putLong(sequence); // Count is not known yet, it is written at the end
+            int[] written = {0};
+            try{
+                index.forEach(p -> {
+                    int size = p.getSnapshotSize();
+                    if (buffer.remaining() < size)
+                        writeAll(channel, buffer);
+                    if (buffer.remaining() < size){ // Parking lot does not fit into an empty buffer either
+                        ByteBuffer large = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+                        p.writeTo(large);
+                        writeAll(channel, large);
+                    }
+                    else
+                        p.writeTo(buffer);
+                    written[0]++;
+                });
+            }catch (UncheckedIOException e){
+                throw e.getCause();
+            }
+            writeAll(channel, buffer);
+            count = written[0];
+
+            ByteBuffer header = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(count);
+            header.flip();
+            while (header.hasRemaining())
+                channel.write(header, COUNT_POSITION + header.position());
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    private static void writeAll(FileChannel channel, ByteBuffer buffer){
+        // Writes the bytes of buffer and clears it, called from forEach so exceptions are unchecked
+        buffer.flip();
+        try{
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    public static Snapshot read(Path path) throws IOException {
+        // File is memory mapped, so its pages are read straight from the page cache without copying them into a buffer first
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Snapshot " + path + " is larger than 2 GB");
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            try{
+                if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+                    throw new IOException(path + " is not a snapshot");
+                int count = buffer.getInt();
+                long sequence = buffer.getLong();
+                if (count < 0 || count > buffer.remaining() / 16) // Every parking lot takes at least 16 bytes
+                    throw new IOException("Snapshot " + path + " is corrupt");
+
+                ParkingLot[] lots = new ParkingLot[count];
+                for (int i = 0; i < count; i++){
+                    lots[i] = ParkingLot.readFrom(buffer);
+                    if (i > 0 && lots[i].getCapacityConstraint() <= lots[i - 1].getCapacityConstraint())
+                        throw new IOException("Parking lots of snapshot " + path + " are not sorted");
+                }
+                if (buffer.hasRemaining())
+                    throw new IOException("Snapshot " + path + " is corrupt");
+                return new Snapshot(lots, sequence);
+            }catch (BufferUnderflowException | IllegalArgumentException e){
+                throw new IOException("Snapshot " + path + " is corrupt", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+public class SortedArrayLotIndex implements LotIndex {
+    // Index keeping parking lots in an array sorted by capacityConstraint
+    // Lookups are binary searches, then every flag has a HierarchicalBitset of array positions for searches and truck counts are
+    // kept in a Fenwick tree of array positions for counts, like BitsetLotIndex does with capacities
+    // Inserting and deleting shift the array and build the bitsets and the Fenwick tree again from the shifted position, which is
+    // O(n) like the shift, so it suits fleets whose parking lots rarely change
+
+    private int[] capacities = new int[16]; // capacities[i] is the capacityConstraint of lots[i], kept separately for cache friendly search
+    private ParkingLot[] lots = new ParkingLot[16];
+    private int[] flags = new int[16]; // Flags of lots[i] when it was last updated
+    private int[] truckCounts = new int[16]; // Truck count of lots[i] when it was last updated
+    private int size;
+
+    private HierarchicalBitset free = new HierarchicalBitset(16); // Positions of parking lots with ParkingLot.FREE
+    private HierarchicalBitset waiting = new HierarchicalBitset(16); // Positions of parking lots with ParkingLot.WAITING
+    private HierarchicalBitset ready = new HierarchicalBitset(16); // Positions of parking lots with ParkingLot.READY
+    private long[] fenwick = new long[17]; // Fenwick tree of truckCounts, 1-based
+
+    private int search(long capacity){
+        // Index of the first parking lot with capacityConstraint >= capacity
+        int low = 0;
+        int high = size;
+        while (low < high){
+            int middle = (low + high) >>> 1;
+            if (capacities[middle] < capacity)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    private int indexOf(int capacity){
+        int i = search(capacity);
+        if (i < size && capacities[i] == capacity)
+            return i;
+        return -1;
+    }
+
+    @Override
+    public ParkingLot get(int capacity){
+        int i = indexOf(capacity);
+        return i == -1 ? null : lots[i];
+    }
+
+    @Override
+    public void insert(ParkingLot p){
+        int capacity = p.getCapacityConstraint();
+        int i = search(capacity);
+        if (i < size && capacities[i] == capacity) // Insertion of duplicate values is not allowed
+            return;
+
+        if (size == lots.length){ // Arrays are full, double them
+            capacities = Arrays.copyOf(capacities, size * 2);
+            lots = Arrays.copyOf(lots, size * 2);
+            flags = Arrays.copyOf(flags, size * 2);
+            truckCounts = Arrays.copyOf(truckCounts, size * 2);
+        }
+        System.arraycopy(capacities, i, capacities, i + 1, size - i);
+        System.arraycopy(lots, i, lots, i + 1, size - i);
+        System.arraycopy(flags, i, flags, i + 1, size - i);
+        System.arraycopy(truckCounts, i, truckCounts, i + 1, size - i);
+        capacities[i] = capacity;
+        lots[i] = p;
+        flags[i] = p.getFlags();
+        truckCounts[i] = p.getTruckCount();
+        size++;
+        rebuild(i);
+    }
+
+    @Override
+    public void build(ParkingLot[] lots){
+        // Parking lots are already in the order of the arrays
+        int length = Math.max(16, lots.length);
+        capacities = new int[length];
+        this.lots = Arrays.copyOf(lots, length);
+        flags = new int[length];
+        truckCounts = new int[length];
+        for (int i = 0; i < lots.length; i++){
+            capacities[i] = lots[i].getCapacityConstraint();
+            flags[i] = lots[i].getFlags();
+            truckCounts[i] = lots[i].getTruckCount();
+        }
+        size = lots.length;
+        rebuild(0);
+    }
+
+    private void rebuild(int from){
+        // Bitsets and the Fenwick tree of the positions from on after a shift, they are as long as the arrays
+        if (free.getUniverse() != lots.length){
+            free = new HierarchicalBitset(lots.length);
+            waiting = new HierarchicalBitset(lots.length);
+            ready = new HierarchicalBitset(lots.length);
+            fenwick = new long[lots.length + 1];
+            from = 0;
+        }
+        free.clearFrom(from);
+        waiting.clearFrom(from);
+        ready.clearFrom(from);
+        Arrays.fill(fenwick, from + 1, fenwick.length, 0);
+        // Nodes up to from are unchanged, the ones among them whose parent is rebuilt are the nodes of the prefix sum of from
+        for (int node = from; node > 0; node -= node & -node)
+            if (node + (node & -node) <= size)
+                fenwick[node + (node & -node)] += fenwick[node];
+        for (int i = from; i < size; i++){
+            if ((flags[i] & ParkingLot.FREE) != 0)
+                free.add(i);
+            if ((flags[i] & ParkingLot.WAITING) != 0)
+                waiting.add(i);
+            if ((flags[i] & ParkingLot.READY) != 0)
+                ready.add(i);
+            fenwick[i + 1] += truckCounts[i];
+            int parent = i + 1 + ((i + 1) & -(i + 1)); // Every node adds its sum to its parent once it is complete, O(n) in total
+            if (parent <= size)
+                fenwick[parent] += fenwick[i + 1];
+        }
+    }
+
+    @Override
+    public void insertAll(ParkingLot[] lots){
+        // Merging both sorted runs moves every parking lot once, inserting them one by one would shift the array for each
+        build(LotIndex.merge(this, lots));
+    }
+
+    @Override
+    public void forEach(Consumer<ParkingLot> action){
+        for (int i = 0; i < size; i++)
+            action.accept(lots[i]);
+    }
+
+    @Override
+    public void delete(int capacity){
+        int i = indexOf(capacity);
+        if (i == -1)
+            return;
+        System.arraycopy(capacities, i + 1, capacities, i, size - i - 1);
+        System.arraycopy(lots, i + 1, lots, i, size - i - 1);
+        System.arraycopy(flags, i + 1, flags, i, size - i - 1);
+        System.arraycopy(truckCounts, i + 1, truckCounts, i, size - i - 1);
+        size--;
+        lots[size] = null; // Let the parking lot be garbage collected
+        rebuild(i);
+    }
+
+    @Override
+    public void update(ParkingLot p){
+        int i = indexOf(p.getCapacityConstraint());
+        if (i == -1 || lots[i] != p) // Parking lot is not in this index
+            return;
+        int newFlags = p.getFlags();
+        if (newFlags != flags[i]){
+            set(free, i, (newFlags & ParkingLot.FREE) != 0);
+            set(waiting, i, (newFlags & ParkingLot.WAITING) != 0);
+            set(ready, i, (newFlags & ParkingLot.READY) != 0);
+            flags[i] = newFlags;
+        }
+        int difference = p.getTruckCount() - truckCounts[i];
+        if (difference != 0){
+            truckCounts[i] += difference;
+            for (int j = i + 1; j <= size; j += j & -j)
+                fenwick[j] += difference;
+        }
+    }
+
+    private void set(HierarchicalBitset set, int i, boolean value){
+        if (value)
+            set.add(i);
+        else
+            set.remove(i);
+    }
+
+    private HierarchicalBitset setOf(int flag){
+        // Searches are always done with a single flag
+        if (flag == ParkingLot.FREE)
+            return free;
+        if (flag == ParkingLot.WAITING)
+            return waiting;
+        if (flag == ParkingLot.READY)
+            return ready;
+        throw new IllegalArgumentException("Unknown flag " + flag);
+    }
+
+    @Override
+    public ParkingLot findSmallerThan(int capacity, int flag){
+        int found = setOf(flag).previous(search((long) capacity + 1) - 1); // From the greatest parking lot <= capacity
+        return found == -1 ? null : lots[found];
+    }
+
+    @Override
+    public ParkingLot findGreaterThan(int capacity, int flag){
+        int found = setOf(flag).next(search(capacity));
+        return found == -1 ? null : lots[found];
+    }
+
+    private long sumBefore(int i){
+        // Number of trucks in the parking lots at positions below i
+        long sum = 0;
+        for (; i > 0; i -= i & -i)
+            sum += fenwick[i];
+        return sum;
+    }
+
+    @Override
+    public long count(int capacity){
+        return sumBefore(size) - sumBefore(search((long) capacity + 1));
+    }
+
+    @Override
+    public long countRange(int low, int high){
+        if (low > high) // Empty range
+            return 0;
+        return sumBefore(search((long) high + 1)) - sumBefore(search(low));
+    }
+}
@@ -0,0 +1,98 @@
+import java.util.Locale;
+
+public class Stats {
+    // Counters of the simulator, enabled with -stats <file> in Main or -Dfleet.stats=true
+    // ENABLED is a static final constant, so when it is false the JIT removes every "if (Stats.ENABLED)" block completely
+    // Counters are static and plain fields, they are only correct when a single thread runs simulators
+    public static final boolean ENABLED = Boolean.getBoolean("fleet.stats");
+
+    public static final long[] commands = new long[CommandHandler.COMMANDS]; // Number of times every command ran
+    public static final long[] misses = new long[CommandHandler.COMMANDS]; // Number of "-1" responses of every command
+    public static final LatencyHistogram[] latencies = new LatencyHistogram[CommandHandler.COMMANDS]; // Nanoseconds per command
+
+    public static long reassignMisses; // Trucks of load commands that could not be sent to any parking lot
+    public static final LatencyHistogram lotsPerLoad = new LatencyHistogram(); // Values are counts, not nanoseconds
+    public static final LatencyHistogram trucksPerLoad = new LatencyHistogram();
+    public static int lotsVisited; // Parking lots visited by the current load
+    public static int trucksMoved; // Trucks moved by the current load
+    public static long groupedTrucks; // Loaded trucks sent to the parking lot of the previous truck without a search of their own
+
+    public static long inserts; // Parking lots inserted into the index
+    public static long deletes; // Parking lots deleted from the index
+    public static long rotations; // Rotations done by AVL indexes
+    public static long fingerHits; // AVLTree searches answered near the node of the previous search with the same flag
+    public static long fingerMisses; // AVLTree searches that tried the finger but had to start from the root
+    public static long fingerSkips; // AVLTree searches that did not try the finger because it missed recently
+
+    static {
+        for (int i = 0; i < latencies.length; i++)
+            latencies[i] = new LatencyHistogram();
+    }
+
+    public static CommandHandler timed(CommandHandler handler){
+        // Wraps the handler so that every command is counted and timed
+        return (command, first, second, text) -> {
+            long start = System.nanoTime();
+            handler.handle(command, first, second, text);
+            latencies[command].record(System.nanoTime() - start);
+            commands[command]++;
+        };
+    }
+
+    public static void startLoad(){
+        lotsVisited = 0;
+        trucksMoved = 0;
+    }
+
+    public static void endLoad(){
+        lotsPerLoad.record(lotsVisited);
+        trucksPerLoad.record(trucksMoved);
+    }
+
+    public static String toJson(LotIndex index){
+        // Every counter as a single line of JSON
+        if (!ENABLED)
+            return "{\"enabled\":false}";
+
+        StringBuilder str = new StringBuilder("{\"enabled\":true,\"commands\":{");
+        boolean first = true;
+        for (int i = 0; i < CommandHandler.COMMANDS; i++){
+            if (commands[i] == 0)
+                continue;
+            if (!first)
+                str.append(',');
+            first = false;
+            str.append('"').append(CommandParser.nameOf(i)).append("\":{\"count\":").append(commands[i])
+                    .append(",\"misses\":").append(misses[i])
+                    .append(",\"latency_ns\":");
+            histogram(str, latencies[i]);
+            str.append('}');
+        }
+        str.append("},\"load\":{\"lots_visited\":");
+        histogram(str, lotsPerLoad);
+        str.append(",\"trucks_moved\":");
+        histogram(str, trucksPerLoad);
+        str.append(",\"reassign_misses\":").append(reassignMisses);
+        str.append(",\"grouped_trucks\":").append(groupedTrucks);
+        str.append("},\"index\":{\"height\":").append(index.getHeight())
+                .append(",\"inserts\":").append(inserts)
+                .append(",\"deletes\":").append(deletes)
+                .append(",\"rotations\":").append(rotations)
+                .append(",\"rotations_per_change\":").append(String.format(Locale.ROOT, "%.3f", inserts + deletes == 0 ? 0.0 : (double) rotations / (inserts + deletes)))
+                .append(",\"finger_hits\":").append(fingerHits)
+                .append(",\"finger_misses\":").append(fingerMisses)
+                .append(",\"finger_skips\":").append(fingerSkips)
+                .append(",\"finger_hit_rate\":").append(String.format(Locale.ROOT, "%.3f", fingerHits + fingerMisses == 0 ? 0.0 : (double) fingerHits / (fingerHits + fingerMisses)))
+                .append("}}");
+        return str.toString();
+    }
+
+    private static void histogram(StringBuilder str, LatencyHistogram histogram){
+        str.append("{\"mean\":").append(String.format(Locale.ROOT, "%.1f", histogram.getMean()))
+                .append(",\"p50\":").append(histogram.percentile(50))
+                .append(",\"p99\":").append(histogram.percentile(99))
+                .append(",\"p999\":").append(histogram.percentile(99.9))
+                .append(",\"max\":").append(histogram.getMax())
+                .append('}');
+    }
+}
@@ -0,0 +1,51 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+public class TextCommandWriter implements CommandHandler {
+    // Writes every command it is given as a text line, so BinaryCommandParser and this convert a binary command file to a text one
+
+    private static final int BUFFER_SIZE = 1 << 16; // Bytes collected before writing to the channel
+
+    private final WritableByteChannel channel;
+    private final byte[] bytes = new byte[BUFFER_SIZE];
+    private final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    private int position;
+    private final StringBuilder line = new StringBuilder(); // Reused for every line
+
+    TextCommandWriter(WritableByteChannel channel){
+        this.channel = channel;
+    }
+
+    @Override
+    public void handle(int command, int first, int second, String text){
+        line.setLength(0);
+        line.append(CommandParser.nameOf(command));
+        int operands = CommandParser.operandsOf(command);
+        if (operands == CommandParser.TEXT || operands == CommandParser.LIST)
+            line.append(' ').append(text);
+        if (operands >= 1)
+            line.append(' ').append(first);
+        if (operands == 2)
+            line.append(' ').append(second);
+        line.append('\n');
+        for (int i = 0; i < line.length(); i++){
+            if (position == BUFFER_SIZE)
+                flush();
+            bytes[position++] = (byte) line.charAt(i); // Commands are always ASCII
+        }
+    }
+
+    public void flush(){
+        // Writes every formatted byte to the channel, the buffer is reused afterwards
+        buffer.clear().limit(position);
+        try{
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+        position = 0;
+    }
+}
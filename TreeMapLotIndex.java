@@ -0,0 +1,95 @@
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+public class TreeMapLotIndex implements LotIndex {
+    // Index built on java.util.TreeMap, simple enough to be used as a reference for the other indexes
+    // Every flag has its own map, count queries visit every parking lot above the given capacity
+
+    private final TreeMap<Integer, ParkingLot> all = new TreeMap<>();
+    private final TreeMap<Integer, ParkingLot> free = new TreeMap<>(); // Parking lots with ParkingLot.FREE
+    private final TreeMap<Integer, ParkingLot> waiting = new TreeMap<>(); // Parking lots with ParkingLot.WAITING
+    private final TreeMap<Integer, ParkingLot> ready = new TreeMap<>(); // Parking lots with ParkingLot.READY
+
+    @Override
+    public void insert(ParkingLot p){
+        if (all.putIfAbsent(p.getCapacityConstraint(), p) == null) // Insertion of duplicate values is not allowed
+            update(p);
+    }
+
+    @Override
+    public void forEach(Consumer<ParkingLot> action){
+        all.values().forEach(action);
+    }
+
+    @Override
+    public void delete(int capacity){
+        all.remove(capacity);
+        free.remove(capacity);
+        waiting.remove(capacity);
+        ready.remove(capacity);
+    }
+
+    @Override
+    public void update(ParkingLot p){
+        if (all.get(p.getCapacityConstraint()) != p) // Parking lot is not in this index
+            return;
+        int flags = p.getFlags();
+        set(free, p, (flags & ParkingLot.FREE) != 0);
+        set(waiting, p, (flags & ParkingLot.WAITING) != 0);
+        set(ready, p, (flags & ParkingLot.READY) != 0);
+    }
+
+    private void set(TreeMap<Integer, ParkingLot> map, ParkingLot p, boolean value){
+        if (value)
+            map.put(p.getCapacityConstraint(), p);
+        else
+            map.remove(p.getCapacityConstraint());
+    }
+
+    private TreeMap<Integer, ParkingLot> mapOf(int flag){
+        // Searches are always done with a single flag
+        if (flag == ParkingLot.FREE)
+            return free;
+        if (flag == ParkingLot.WAITING)
+            return waiting;
+        if (flag == ParkingLot.READY)
+            return ready;
+        throw new IllegalArgumentException("Unknown flag " + flag);
+    }
+
+    @Override
+    public ParkingLot get(int capacity){
+        return all.get(capacity);
+    }
+
+    @Override
+    public ParkingLot findSmallerThan(int capacity, int flag){
+        Map.Entry<Integer, ParkingLot> entry = mapOf(flag).floorEntry(capacity);
+        return entry == null ? null : entry.getValue();
+    }
+
+    @Override
+    public ParkingLot findGreaterThan(int capacity, int flag){
+        Map.Entry<Integer, ParkingLot> entry = mapOf(flag).ceilingEntry(capacity);
+        return entry == null ? null : entry.getValue();
+    }
+
+    @Override
+    public long count(int capacity){
+        long sum = 0;
+        for (ParkingLot p : all.tailMap(capacity, false).values())
+            sum += p.getTruckCount();
+        return sum;
+    }
+
+    @Override
+    public long countRange(int low, int high){
+        if (low > high) // Empty range
+            return 0;
+        long sum = 0;
+        for (ParkingLot p : all.subMap(low, true, high, true).values())
+            sum += p.getTruckCount();
+        return sum;
+    }
+}
@@ -0,0 +1,22 @@
+public interface TruckLocations {
+    // Map from truck ID to the parking lot, section and sequence number of the truck, so a truck is found without a search
+    // HeapTruckLocations keeps it in arrays on the heap and MappedTruckLocations in the file of a TruckStore
+
+    // Slot of the truck, or -1 if it is not in the map
+    int find(int truckID);
+
+    // Values of a slot returned by find
+    ParkingLot getLot(int slot);
+
+    int getSection(int slot); // ParkingLot.WAITING or ParkingLot.READY
+
+    int getSequence(int slot); // Sequence number in the section, see TruckQueue
+
+    // Adds the truck or replaces its location, truck IDs are unique
+    void put(int truckID, ParkingLot p, int section, int sequence);
+
+    // Removes the truck, ignored if it is not in the map
+    void remove(int truckID);
+
+    int getSize();
+}
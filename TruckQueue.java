@@ -0,0 +1,51 @@
+import java.nio.ByteBuffer;
+
+public interface TruckQueue {
+    // FIFO section of a parking lot with at most limit trucks, trucks are stored as values (ID, capacity, load), never as objects
+    // Every enqueued truck gets the next sequence number, so a truck can be found and removed from the middle, see TruckLocations
+    // MyQueue keeps the trucks in arrays on the heap and MappedQueue in a TruckStore file
+
+    // Adds the truck at the back, ignored if the queue is full
+    void enqueue(int id, int capacity, int load);
+
+    // Removes the first truck, its values must be read with the getters before calling this
+    void dequeue();
+
+    // Values of the first truck, only valid if the queue is not empty
+    int getFirstID();
+
+    int getFirstCapacity();
+
+    int getFirstLoad();
+
+    // Sequence number of the last enqueued truck and of the first truck, numbers wrap around like ints
+    int getLastSequence();
+
+    int getFirstSequence();
+
+    // Whether a truck with this sequence number is in the queue
+    boolean contains(int sequence);
+
+    // ID of the truck with this sequence number, only valid if contains(sequence)
+    int getIDAt(int sequence);
+
+    // Removes the truck with this sequence number from anywhere in the queue, returns false if there is no such truck
+    boolean remove(int sequence);
+
+    // Whether removed trucks take so much room that compact should be called, it gives the trucks new sequence numbers
+    boolean needsCompaction();
+
+    void compact();
+
+    // Size, then ID, capacity and load of every truck from the first one, the format of snapshots
+    void writeTo(ByteBuffer buffer);
+
+    // Fills an empty queue with the trucks written by writeTo
+    void readFrom(ByteBuffer buffer);
+
+    int getSize();
+
+    boolean isEmpty();
+
+    boolean isFull();
+}
@@ -1,79 +1,254 @@
-public class TruckSimulator {
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
 
-    public AVLTree addTruckAvailable; // AVL tree of parking lots which are suitable for addTruck method
+public class TruckSimulator {
 
-    public AVLTree readyAvailable; // AVL tree of parking lots which are suitable for ready method
+    private static final String WAITING_NAME = "waiting"; // Section items of a locate response, constants so locate allocates nothing
+    private static final String READY_NAME = "ready";
 
-    public AVLTree loadAvailable; // AVL tree of parking lots which are suitable for load method
+    public LotIndex parkingLots; // Index containing every parking lot
+    private Journal journal; // If not null, every command that changes the simulator is appended to it before it is applied
+    private TruckStore store; // If not null, trucks of new parking lots are kept in this file instead of the heap
+    private TruckLocations locations = new HeapTruckLocations(); // Where every truck is, kept current by every command that moves one
 
-    public AVLTree everyParkingLot; // AVL tree containing every parking lot
+    // Parking lot the previous loaded truck was sent to and the capacity it was searched with, see reassignTruck
+    // Its index update is delayed while the next trucks go to the same parking lot, null with destinationQuery set means no lot fits
+    private ParkingLot destination;
+    private int destinationQuery;
+    private boolean hasDestination; // Whether destination is the answer of a search of the current group
     TruckSimulator(){
-        // We have 4 distinct AVL trees in our application to increase efficiency of searches
-        addTruckAvailable = new AVLTree();
-        readyAvailable = new AVLTree();
-        loadAvailable = new AVLTree();
-        everyParkingLot = new AVLTree();
+        // A single AVL tree is enough, its nodes know which commands their subtrees are suitable for (see ParkingLot.getFlags)
+        // After every change in a parking lot, parkingLots.update is called once to fix truck counts and flags on its path
+        this(new AVLTree());
+    }
+
+    TruckSimulator(LotIndex parkingLots){
+        this.parkingLots = parkingLots;
+    }
+
+    public void setJournal(Journal journal){
+        // Journal must already contain every command applied so far, see Journal.replay
+        this.journal = journal;
+    }
+
+    public void open(TruckStore store){
+        // Keeps the trucks of every parking lot and their locations in store from now on
+        // An empty simulator starts with the parking lots of the store, their trucks are already in its location map
+        this.store = store;
+        locations = store.getLocations();
+        parkingLots.build(store.getLots());
+        if (Stats.ENABLED)
+            Stats.inserts += store.getLots().length;
+    }
+
+    private ParkingLot newParkingLot(int capacityConstraint, int truckLimit){
+        // Empty parking lot in the store or on the heap, null if the store already has this capacityConstraint
+        // Index would ignore such a duplicate anyway, the store must not give it a block
+        return store == null ? new ParkingLot(capacityConstraint, truckLimit) : store.create(capacityConstraint, truckLimit);
+    }
+
+    protected TruckLocations locations(int capacityConstraint){
+        // Map that has the trucks of parking lots with this capacityConstraint, a sharded simulator has one per shard
+        return locations;
+    }
+
+    protected TruckLocations locationsOf(int truckID){
+        // Map that has the truck, null if no map has it
+        return locations.find(truckID) == -1 ? null : locations;
+    }
+
+    private void journal(int command, int first, int second){
+        try{
+            journal.append(command, first, second);
+        }catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
     }
 
     public void createParkingLot(int capacityConstraint, int truckLimit){
-        // Insert method returns the root, then we assign it to the root
-        ParkingLot p = new ParkingLot(capacityConstraint, truckLimit); // We do not create 2 distinct parking lots, both of them share the same parking lot
-        everyParkingLot.insert(p);
-        addTruckAvailable.insert(p);
+        if (!isValid(capacityConstraint, truckLimit)) // Ignored before it is journaled, so a replay never sees it
+            return;
+        if (journal != null)
+            journal(CommandHandler.CREATE_PARKING_LOT, capacityConstraint, truckLimit);
+        // If a parking lot with this capacityConstraint already exists, the new one is ignored
+        ParkingLot p = newParkingLot(capacityConstraint, truckLimit);
+        if (p == null)
+            return;
+        if (Stats.ENABLED && parkingLots.get(capacityConstraint) == null) // Only parking lots the index really gets are counted
+            Stats.inserts++;
+        parkingLots.insert(p);
     }
 
 
-    public String addTruck(int truckID, int capacity){
-        AVLTree.AVLNode candidate = addTruckAvailable.findSmallerThan(capacity); // Possible node that contains the suitable parking lot
+    public void createParkingLots(int[] operands){
+        // Same as createParkingLot for every capacityConstraint and truckLimit pair of operands, in the same order
+        // Parking lots are sorted and given to the index at once, so it can build or merge them in O(n) instead of a search for each
+        operands = valid(operands);
+        if (journal != null)
+            for (int i = 0; i < operands.length; i += 2)
+                journal(CommandHandler.CREATE_PARKING_LOT, operands[i], operands[i + 1]);
+
+        // Pairs are sorted as capacityConstraint << 32 | position, a primitive sort that keeps pairs with the same capacityConstraint
+        // in input order, so the first one is kept like with separate commands and parking lots are created already sorted
+        int count = operands.length / 2;
+        long[] order = new long[count];
+        for (int i = 0; i < count; i++)
+            order[i] = (long) operands[2 * i] << 32 | i;
+        Arrays.sort(order);
+
+        ParkingLot[] lots = new ParkingLot[count];
+        int unique = 0;
+        for (int i = 0; i < count; i++){
+            int capacityConstraint = (int) (order[i] >> 32);
+            if (unique > 0 && capacityConstraint == lots[unique - 1].getCapacityConstraint())
+                continue;
+            ParkingLot p = newParkingLot(capacityConstraint, operands[2 * (int) order[i] + 1]);
+            if (p != null)
+                lots[unique++] = p;
+        }
+        if (Stats.ENABLED)
+            for (int i = 0; i < unique; i++)
+                if (parkingLots.get(lots[i].getCapacityConstraint()) == null)
+                    Stats.inserts++;
+        parkingLots.insertAll(unique == count ? lots : Arrays.copyOf(lots, unique));
+    }
 
-        if (candidate == null) // No such parking lot exists
-            return "-1";
-        ParkingLot p = candidate.p;
+    private boolean isValid(int capacityConstraint, int truckLimit){
+        // Parking lots outside the range of the index or with a negative truckLimit can not be created
+        return truckLimit >= 0 && parkingLots.accepts(capacityConstraint);
+    }
+
+    private int[] valid(int[] operands){
+        // Pairs of operands that createParkingLot would not ignore before journaling, operands itself if that is all of them
+        int length = 0;
+        for (int i = 0; i < operands.length; i += 2)
+            if (isValid(operands[i], operands[i + 1]))
+                length += 2;
+        if (length == operands.length)
+            return operands;
+        int[] valid = new int[length];
+        length = 0;
+        for (int i = 0; i < operands.length; i += 2)
+            if (isValid(operands[i], operands[i + 1])){
+                valid[length++] = operands[i];
+                valid[length++] = operands[i + 1];
+            }
+        return valid;
+    }
+
+    public void addTruck(int truckID, int capacity, ResponseSink out){
+        if (journal != null)
+            journal(CommandHandler.ADD_TRUCK, truckID, capacity);
+        ParkingLot p = parkingLots.findSmallerThan(capacity, ParkingLot.FREE); // Suitable parking lot with a free slot
+
+        if (p == null){ // No such parking lot exists
+            if (Stats.ENABLED)
+                Stats.misses[CommandHandler.ADD_TRUCK]++;
+            out.value(-1);
+            out.end();
+            return;
+        }
 
         p.addTruck(truckID, capacity, 0); // Initial load is 0 since the truck is newly created
-        if (p.getWaitingSize()==1) // If this is the first truck in the parking lot, add it to readyAvailable avl
-            readyAvailable.insert(p);
-        if (!p.canAddTruck()) // If we cant add more trucks to this parking lot, delete the node of the corresponding parking lot in addTruckAvailable
-            addTruckAvailable.delete(p.getCapacityConstraint());
-        return Integer.toString(p.getCapacityConstraint());
+        locations(p.getCapacityConstraint()).put(truckID, p, ParkingLot.WAITING, p.getLastSequence(ParkingLot.WAITING));
+        parkingLots.update(p); // One more truck, parking lot might be full now and it surely has a waiting truck
+        out.value(p.getCapacityConstraint());
+        out.end();
     }
 
 
     public void deleteParkingLot(int capacityConstraint){
-        // Delete method returns the root, then we assign it to the root
-        addTruckAvailable.delete(capacityConstraint);
-        readyAvailable.delete(capacityConstraint);
-        loadAvailable.delete(capacityConstraint);
-        everyParkingLot.delete(capacityConstraint);
+        if (journal != null)
+            journal(CommandHandler.DELETE_PARKING_LOT, capacityConstraint, 0);
+        // Trucks are deleted with their parking lot, the lookup only reads the shard of capacityConstraint, unlike a flag search
+        ParkingLot p = parkingLots.get(capacityConstraint);
+        if (p == null)
+            return;
+        p.removeTrucks(locations(capacityConstraint));
+        if (Stats.ENABLED)
+            Stats.deletes++;
+        parkingLots.delete(capacityConstraint);
+        if (store != null)
+            store.delete(capacityConstraint);
     }
 
-    public String ready(int capacityConstraint){
-        AVLTree.AVLNode candidate = readyAvailable.findGreaterThan(capacityConstraint); // Possible node that contains the suitable parking lot
-        if (candidate == null) // No such parking lot exists
-            return "-1";
+    public void ready(int capacityConstraint, ResponseSink out){
+        if (journal != null)
+            journal(CommandHandler.READY, capacityConstraint, 0);
+        ParkingLot p = parkingLots.findGreaterThan(capacityConstraint, ParkingLot.WAITING); // Suitable parking lot with a waiting truck
+        if (p == null){ // No such parking lot exists
+            if (Stats.ENABLED)
+                Stats.misses[CommandHandler.READY]++;
+            out.value(-1);
+            out.end();
+            return;
+        }
 
-        ParkingLot p = candidate.p;
+        int truckID = p.readyTruck(); // Moving the first truck in waiting to ready section
+        locations(p.getCapacityConstraint()).put(truckID, p, ParkingLot.READY, p.getLastSequence(ParkingLot.READY));
+        parkingLots.update(p); // Parking lot surely has a ready truck now, waiting section might be empty
+        out.pair(truckID, p.getCapacityConstraint());
+        out.end();
+    }
 
+    public void readyN(int capacityConstraint, int count, ResponseSink out){
+        // Same as count ready commands, but the trucks of a parking lot are moved together with a single index update
+        // Response has every readied truck on one line, or -1 if there was none
+        if (journal != null)
+            journal(CommandHandler.READY_N, capacityConstraint, count);
+        int readied = 0;
+        ParkingLot p = count > 0 ? parkingLots.findGreaterThan(capacityConstraint, ParkingLot.WAITING) : null;
+        while (p != null){
+            TruckLocations map = locations(p.getCapacityConstraint());
+            int n = Math.min(count - readied, p.getWaitingSize());
+            for (int i = 0; i < n; i++){
+                int truckID = p.readyTruck();
+                map.put(truckID, p, ParkingLot.READY, p.getLastSequence(ParkingLot.READY));
+                out.pair(truckID, p.getCapacityConstraint());
+            }
+            readied += n;
+            parkingLots.update(p);
+            if (readied == count)
+                break;
+            // Waiting section of p is empty now, so the next ready would find the next parking lot
+            p = parkingLots.findGreaterThan(p.getCapacityConstraint(), ParkingLot.WAITING);
+        }
+        if (readied == 0){
+            if (Stats.ENABLED)
+                Stats.misses[CommandHandler.READY_N]++;
+            out.value(-1);
+        }
+        out.end();
+    }
 
-        // If we are out of the loop, that means we can make a truck ready
-        Truck t = p.readyTruck(); // Moving the first truck in waiting to ready section
-        if (p.getReadySize() == 1) // If the truck is the first truck in the ready section, add to loadAvailable
-            loadAvailable.insert(p);
-        if (!p.canBeReady()) // If no waiting trucks left in waiting section, remove it from readyAvailable
-            readyAvailable.delete(p.getCapacityConstraint());
-        return t.getID() + " " + p.getCapacityConstraint();
+    public void load(int capacityConstraint, int loadAmount, ResponseSink out){
+        if (journal != null)
+            journal(CommandHandler.LOAD, capacityConstraint, loadAmount);
+        if (Stats.ENABLED)
+            Stats.startLoad();
+        loadLots(capacityConstraint, loadAmount, out);
+        if (Stats.ENABLED)
+            Stats.endLoad();
     }
 
-    public String load(int capacityConstraint, int loadAmount){
-        StringBuilder str = new StringBuilder(); // Response string
-        AVLTree.AVLNode candidate = loadAvailable.findGreaterThan(capacityConstraint); // Possible node that contains the suitable parking lot
-        if (candidate == null){ // No such parking lot exists
-            return "-1";
+    private void loadLots(int capacityConstraint, int loadAmount, ResponseSink out){
+        // Every loaded truck is written to out as soon as it is reassigned, so the response is never built in memory
+        ParkingLot p = parkingLots.findGreaterThan(capacityConstraint, ParkingLot.READY); // Suitable parking lot with a ready truck
+        if (p == null){ // No such parking lot exists
+            if (Stats.ENABLED)
+                Stats.misses[CommandHandler.LOAD]++;
+            out.value(-1);
+            out.end();
+            return;
         }
 
-        while (candidate != null){
-            ParkingLot p = candidate.p;
+        boolean loaded = false; // Whether any truck has been written to the response
 
+        while (p != null){
+            if (Stats.ENABLED)
+                Stats.lotsVisited++;
 
             int maxLoad = p.getReadySize() * p.getCapacityConstraint(); // Maximum amount of load a parking lot can take
             int truckInReady = p.getReadySize(); // We take the initial ready size and store it since it changes during for loop
@@ -82,28 +257,22 @@ public class TruckSimulator {
             // Case-1 load amount is large compared to maxLoad, therefore it is guaranteed that every truck in this parking lot will get full load
             if (loadAmount >= maxLoad){
                 for (int i = 0; i < truckInReady; i++){
-                    Truck t = p.getTruck();
-                    // IMPORTANT! After the removal of a truck, we must immediately check for if we must add the parking lot to addTruckAvailable
-                    if (p.canAddTruck())
-                        addTruckAvailable.insert(p);
-                    t.load += p.getCapacityConstraint(); // Increment the load of the truck
-                    String response = reassignTruck(t); // Since the truck's load has changed, we shall send it to a new parking lot
-                    // Here, response contains the ID of the truck and the capacityConstraint of its new parking lot, (If it is not added -1)
-                    str.append(response).append(" - ");
+                    loadTruck(p, p.getCapacityConstraint(), out); // Every truck gets a full load
+                    loaded = true;
                 }
+                endGroup(p);
                 loadAmount -= maxLoad; // Decremented after the loop to increase efficiency
 
                 // Case-1-a load amount was exactly the maxLoad
                 if (loadAmount == 0) {
                     // No loads left to distribute, so terminate
-                    str.delete(str.length() - 3, str.length());
-                    return str.toString();
+                    out.end();
+                    return;
                 }
 
                 // Case-1-b there are still load left, so new parking lot search starts
-                int capacityy = p.getCapacityConstraint(); // Store the capacityConstraint of the parking lot in case if the nodes gets deleted after this line
-                loadAvailable.delete(capacityy); // This parking lot have no trucks in ready section, remove from loadAvailable
-                candidate = loadAvailable.findGreaterThan(capacityy); // Find the new candidate
+                // This parking lot has no trucks in ready section anymore, so its flags already exclude it from the search
+                p = parkingLots.findGreaterThan(p.getCapacityConstraint(), ParkingLot.READY); // Find the new candidate
 
             }
             // Case-2 load amount is less than maxLoad
@@ -111,75 +280,190 @@ public class TruckSimulator {
                 int fullLoadedTruckCount = loadAmount / p.getCapacityConstraint(); // For example 170/50 = 3 trucks will get fully loaded
                 for (int i = 0; i < fullLoadedTruckCount; i++){
                     // Same process explained in Case-1
-                    Truck t = p.getTruck();
-                    if (p.canAddTruck())
-                        addTruckAvailable.insert(p);
-                    t.load += p.getCapacityConstraint();
-                    String response = reassignTruck(t);
-                    str.append(response).append(" - ");
+                    loadTruck(p, p.getCapacityConstraint(), out);
+                    loaded = true;
                 }
                 loadAmount %= p.getCapacityConstraint(); // Again load amount is updated after the loop for efficiency
 
 
                 // Case-2-a no loads left ---> then, our job is done
                 if (loadAmount == 0){
-                    str.delete(str.length() - 3, str.length());
-                    return str.toString();
+                    endGroup(p);
+                    out.end();
+                    return;
                 }
 
 
                 // Case 2-b there are some loads left (note that loadAmount < capacity)
                 // Add the remaining load to the truck then, our job is done
-                Truck t = p.getTruck();
-                if (p.canAddTruck())
-                    addTruckAvailable.insert(p);
-                t.load += loadAmount;
-                String response = reassignTruck(t);
-                str.append(response).append(" - ");
-                // If p's ready section becomes empty, remove it from loadAvailable
-                if (p.isReadyEmpty())
-                    loadAvailable.delete(p.getCapacityConstraint());
+                loadTruck(p, loadAmount, out);
+                endGroup(p);
 
                 // Our job is done since no load has left
-                str.delete(str.length() - 3, str.length());
-                return str.toString();
+                out.end();
+                return;
             }
         }
         // If we are out of the loop, no candidates left for load distribution, so return
 
-        if (!str.isEmpty()) {
-            str.delete(str.length() - 3, str.length());
-            return str.toString();
+        if (!loaded){
+            if (Stats.ENABLED)
+                Stats.misses[CommandHandler.LOAD]++;
+            out.value(-1);
         }
-        return "-1";
+        out.end();
     }
 
-    private String reassignTruck(Truck t){
+    private void loadTruck(ParkingLot p, int amount, ResponseSink out){
+        // Takes the first truck in the ready section of p, adds amount to its load and sends it to a new parking lot
+        int truckID = p.getReadyTruckID(); // Truck is moved as values, its values are read before it is removed
+        int capacity = p.getReadyTruckCapacity();
+        int load = p.getReadyTruckLoad() + amount; // Increment the load of the truck
+        p.removeReadyTruck();
+        if (Stats.ENABLED)
+            Stats.trucksMoved++;
+        // The tree is not updated here, the removal can only give p a free slot and reassignTruck updates p before its next search
+        // Since the truck's load has changed, we shall send it to a new parking lot
+        reassignTruck(p, truckID, capacity, load, locations(p.getCapacityConstraint()), out);
+        // Here, response contains the ID of the truck and the capacityConstraint of its new parking lot, (If it is not added -1)
+    }
 
-        if (t.getCapacity() == t.load) // If the truck has full load, empty it
-            t.load = 0;
+    private void reassignTruck(ParkingLot source, int truckID, int capacity, int load, TruckLocations from, ResponseSink out){
+        // source is the parking lot the truck was loaded in and from is the map that has the truck there
+        // Trucks loaded one after another from source with the same capacity - load go to the same parking lot while it has a free
+        // slot: between them only source and the destination change, source was already free when the destination was searched
+        // and filling the destination can not make another parking lot the answer, so the search is repeated only when the
+        // capacity changes or the destination is full, and the index is updated once for every group instead of once for every truck
+
+        if (capacity == load) // If the truck has full load, empty it
+            load = 0;
+        int query = capacity - load; // We search with capacity - load since it might have some loads in it
+
+        if (!hasDestination || query != destinationQuery || (destination != null && !destination.canAddTruck())){
+            updateGroup(source); // Search must see source and the previous destination as they are now
+            destination = parkingLots.findSmallerThan(query, ParkingLot.FREE); // Suitable parking lot with a free slot
+            destinationQuery = query;
+            hasDestination = true;
+        }
+        else if (Stats.ENABLED)
+            Stats.groupedTrucks++;
+        ParkingLot p = destination;
+
+        if (p == null){ // No such parking lots exists
+            if (Stats.ENABLED)
+                Stats.reassignMisses++;
+            from.remove(truckID);
+            out.pair(truckID, -1);
+            return;
+        }
 
-        AVLTree.AVLNode candidate = addTruckAvailable.findSmallerThan(t.getCapacity() - t.load); // Possible node that contains the suitable parking lot
-        // We send capacity - load since it might have some loads in it
+        p.addTruck(truckID, capacity, load); // Adding this truck to the parking lot with its current load
+        TruckLocations to = locations(p.getCapacityConstraint());
+        if (to != from)
+            from.remove(truckID);
+        to.put(truckID, p, ParkingLot.WAITING, p.getLastSequence(ParkingLot.WAITING));
 
-        if (candidate == null){ // No such parking lots exists
-            return t.getID() + " -1";
-        }
+        out.pair(truckID, p.getCapacityConstraint());
+    }
+
+    private void updateGroup(ParkingLot source){
+        // Index updates delayed by reassignTruck, source lost trucks and the destination gained some
+        if (destination != null && destination != source)
+            parkingLots.update(destination);
+        parkingLots.update(source);
+    }
 
-        ParkingLot p = candidate.p;
+    private void endGroup(ParkingLot source){
+        // Called after the last truck of source is loaded, before the index is searched for anything else
+        updateGroup(source);
+        destination = null;
+        hasDestination = false;
+    }
 
-        p.addTruck(t.getID(), t.getCapacity(), t.load); // Creating this truck in the parking lot with initial load
-        if (p.getWaitingSize() == 1) // If the truck is the first truck in the waiting section, add this parking lot to readyAvailable
-            readyAvailable.insert(p);
-        if (!p.canAddTruck()) // If no more trucks can be added, remove this parking lot from addTruckAvailable
-            addTruckAvailable.delete(p.getCapacityConstraint());
+    public void locate(int truckID, ResponseSink out){
+        // Capacity of the parking lot of the truck and its section, or -1 if there is no such truck
+        TruckLocations map = locationsOf(truckID);
+        if (map == null){
+            if (Stats.ENABLED)
+                Stats.misses[CommandHandler.LOCATE]++;
+            out.value(-1);
+            out.end();
+            return;
+        }
+        int slot = map.find(truckID);
+        out.value(map.getLot(slot).getCapacityConstraint());
+        out.text(map.getSection(slot) == ParkingLot.READY ? READY_NAME : WAITING_NAME);
+        out.end();
+    }
 
-        return t.getID() + " " + p.getCapacityConstraint();
+    public void removeTruck(int truckID, ResponseSink out){
+        // Removes the truck from its parking lot wherever it is in its section, response is the capacity of the parking lot or -1
+        if (journal != null)
+            journal(CommandHandler.REMOVE_TRUCK, truckID, 0);
+        TruckLocations map = locationsOf(truckID);
+        if (map == null){
+            if (Stats.ENABLED)
+                Stats.misses[CommandHandler.REMOVE_TRUCK]++;
+            out.value(-1);
+            out.end();
+            return;
+        }
+        int slot = map.find(truckID);
+        ParkingLot p = map.getLot(slot);
+        p.removeTruck(map.getSection(slot), map.getSequence(slot));
+        map.remove(truckID);
+        p.compact(map);
+        parkingLots.update(p); // One truck less, parking lot might have a free slot now and its sections might be empty
+        out.value(p.getCapacityConstraint());
+        out.end();
     }
 
-    public String count(int capacity){
+    public void count(int capacity, ResponseSink out){
         // Counts the number of trucks in parking lots with capacityConstraint greater than given capacity
-        return everyParkingLot.count(capacity);
+        out.value(parkingLots.count(capacity));
+        out.end();
+    }
+
+    public void stats(ResponseSink out){
+        // Every counter of Stats as a single line of JSON
+        out.text(Stats.toJson(parkingLots));
+        out.end();
+    }
+
+    public void snapshot(Path path, ResponseSink out){
+        // Writes every parking lot to path (see Snapshot), response is the number of parking lots written
+        // Once the snapshot is on disk, the journal does not need the commands before it anymore
+        try{
+            long sequence = journal == null ? 0 : journal.getSequence();
+            out.value(Snapshot.write(parkingLots, sequence, path));
+            if (journal != null)
+                journal.checkpoint(sequence);
+        }catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+        out.end();
+    }
+
+    public long restore(Path path) throws IOException {
+        // Fills an empty simulator with the parking lots of a snapshot, returns the journal sequence of the snapshot
+        Snapshot snapshot = Snapshot.read(path);
+        fill(snapshot.lots);
+        return snapshot.sequence;
+    }
+
+    public void fill(ParkingLot[] lots){
+        // Fills an empty simulator with parking lots sorted by capacityConstraint, the index is built in one pass from them
+        parkingLots.build(lots);
+        for (ParkingLot p : lots)
+            p.putTrucks(locations(p.getCapacityConstraint()));
+        if (Stats.ENABLED)
+            Stats.inserts += lots.length;
+    }
+
+    public void countRange(int low, int high, ResponseSink out){
+        // Counts the number of trucks in parking lots with low <= capacityConstraint <= high
+        out.value(parkingLots.countRange(low, high));
+        out.end();
     }
 
 
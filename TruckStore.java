@@ -0,0 +1,310 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class TruckStore implements Closeable {
+    // Memory mapped file with every truck and truck location, so fleets larger than the heap do not keep any truck on the heap
+    // Heap only has the lot index, the ParkingLot objects and the few header fields every MappedQueue caches
+    // Every parking lot has a block of the file: a header, the headers of its two sections and the records of their rings
+    // A ring has room for twice the truck limit, see MappedQueue, so blocks are fixed when the parking lot is created and never move
+    // Truck locations are a MappedTruckLocations table in a block of its own, it moves to a larger block when it grows
+    // Block sizes are powers of two, a freed block is put on the free list of its size and reused by the next block of that size
+    // Headers are written through on every change, so opening the same file again continues with the same parking lots and
+    // trucks at once, only the block headers are read to build the index
+    // Writes reach the page cache at once, so they survive the process, force is called when the store is closed
+    // File: MAGIC, VERSION, end of the last block (long), the first free block of every size class (longs), location table (long)
+    // Block: size class, state, then for a parking lot capacityConstraint, truckLimit, waiting queue header, ready queue header,
+    // waiting ring, ready ring
+    // Every number is little endian, the file is mapped in chunks so it can be larger than 2 GB
+
+    private static final int MAGIC = 0x4D4C5446; // "FTLM" in little endian bytes
+    private static final int VERSION = 1;
+    private static final int END_POSITION = 8;
+    private static final int FREE_POSITION = 16; // Free list heads, 0 for an empty list
+    private static final int CLASSES = 48; // Blocks have 2^class bytes
+    private static final int MIN_CLASS = 6;
+    private static final int LOCATIONS_POSITION = FREE_POSITION + 8 * CLASSES; // Block of the location table
+    private static final int HEADER_SIZE = 512;
+
+    private static final int STATE = 4; // Offsets in a block
+    private static final int CAPACITY = 8;
+    private static final int LIMIT = 12;
+    private static final int NEXT_FREE = 8; // Free blocks keep the next free block of their size instead of capacity and limit
+    private static final int WAITING_HEADER = 16;
+    private static final int READY_HEADER = 32;
+    private static final int RECORDS = 48;
+    private static final int FREE = 0; // States of a block
+    private static final int LOT = 1;
+    private static final int TABLE = 2;
+
+    private static final int CHUNK_BITS = 26; // File is mapped in chunks of 64 MB
+    private static final long CHUNK_SIZE = 1L << CHUNK_BITS;
+    private static final int CHUNK_MASK = (int) CHUNK_SIZE - 1;
+
+    private final FileChannel channel;
+    // Replaced by a longer copy when the file grows, volatile so a thread never sees the new array without its chunks
+    private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+    private long end; // End of the last block
+    // Parking lot and block of every capacityConstraint, open addressing in parallel arrays like HeapTruckLocations so nothing
+    // is boxed, at most half of the slots are used
+    private int[] capacities = new int[16];
+    private ParkingLot[] lots = new ParkingLot[16]; // null for an empty slot
+    private long[] blocks = new long[16];
+    private int lotCount;
+    private final ParkingLot[] opened; // Parking lots that were in the file when it was opened
+    private final MappedTruckLocations locations;
+
+    TruckStore(Path path) throws IOException {
+        // Opens or creates the store, parking lots already in the file are returned by getLots
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        try{
+            boolean created = channel.size() < HEADER_SIZE;
+            map(HEADER_SIZE);
+            if (created){
+                putInt(0, MAGIC);
+                putInt(4, VERSION);
+                putLong(END_POSITION, HEADER_SIZE);
+                for (int i = 0; i < CLASSES; i++)
+                    putLong(FREE_POSITION + 8L * i, 0);
+                putLong(LOCATIONS_POSITION, 0);
+            }
+            else if (getInt(0) != MAGIC || getInt(4) != VERSION)
+                throw new IOException(path + " is not a truck store");
+            end = getLong(END_POSITION);
+            if (end < HEADER_SIZE || end > channel.size())
+                throw new IOException("Truck store " + path + " is corrupt");
+            map(end);
+            opened = scan(path);
+            long table = getLong(LOCATIONS_POSITION);
+            if (table != 0 && (table < HEADER_SIZE || table >= end || getInt(table + STATE) != TABLE))
+                throw new IOException("Truck store " + path + " is corrupt");
+            locations = new MappedTruckLocations(this, table);
+        }catch (IOException | RuntimeException e){
+            channel.close();
+            throw e;
+        }
+    }
+
+    private ParkingLot[] scan(Path path) throws IOException {
+        // Walks every block and creates the parking lots of the ones that have one, sorted by capacityConstraint
+        ParkingLot[] found = new ParkingLot[16];
+        int count = 0;
+        for (long block = HEADER_SIZE; block < end; block += 1L << getInt(block)){
+            int sizeClass = getInt(block);
+            if (sizeClass < MIN_CLASS || sizeClass >= CLASSES || block + (1L << sizeClass) > end)
+                throw new IOException("Truck store " + path + " is corrupt");
+            if (getInt(block + STATE) != LOT)
+                continue;
+            ParkingLot p = open(block);
+            if (find(p.getCapacityConstraint()) != -1)
+                throw new IOException("Truck store " + path + " has two parking lots with capacity " + p.getCapacityConstraint());
+            put(p, block);
+            if (count == found.length)
+                found = Arrays.copyOf(found, count * 2);
+            found[count++] = p;
+        }
+        found = Arrays.copyOf(found, count);
+        Arrays.sort(found);
+        return found;
+    }
+
+    public ParkingLot[] getLots(){
+        return opened;
+    }
+
+    public TruckLocations getLocations(){
+        // Locations of every truck of the store, kept current by the simulator that opened it
+        return locations;
+    }
+
+    ParkingLot lotOf(int capacityConstraint){
+        int slot = find(capacityConstraint);
+        return slot == -1 ? null : lots[slot];
+    }
+
+    private int slotOf(int capacityConstraint){
+        int hash = capacityConstraint * 0x9E3779B9; // Fibonacci hashing, see HeapTruckLocations
+        return (hash ^ hash >>> 16) & (lots.length - 1);
+    }
+
+    private int find(int capacityConstraint){
+        // Slot of the parking lot with this capacityConstraint, or -1 if the store has none
+        int mask = lots.length - 1;
+        for (int slot = slotOf(capacityConstraint); lots[slot] != null; slot = (slot + 1) & mask)
+            if (capacities[slot] == capacityConstraint)
+                return slot;
+        return -1;
+    }
+
+    private void put(ParkingLot p, long block){
+        // Adds a parking lot whose capacityConstraint is not in the table yet
+        if (2 * (lotCount + 1) > lots.length){
+            int[] oldCapacities = capacities;
+            ParkingLot[] oldLots = lots;
+            long[] oldBlocks = blocks;
+            capacities = new int[oldLots.length * 2];
+            lots = new ParkingLot[oldLots.length * 2];
+            blocks = new long[oldLots.length * 2];
+            lotCount = 0;
+            for (int i = 0; i < oldLots.length; i++)
+                if (oldLots[i] != null)
+                    put(oldLots[i], oldBlocks[i]);
+        }
+        int mask = lots.length - 1;
+        int slot = slotOf(p.getCapacityConstraint());
+        while (lots[slot] != null)
+            slot = (slot + 1) & mask;
+        capacities[slot] = p.getCapacityConstraint();
+        lots[slot] = p;
+        blocks[slot] = block;
+        lotCount++;
+    }
+
+    private void remove(int slot){
+        // Entries after the slot are moved back into it if their own slot is not between the hole and them, see HeapTruckLocations
+        int mask = lots.length - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; lots[next] != null; next = (next + 1) & mask){
+            int home = slotOf(capacities[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)){
+                capacities[hole] = capacities[next];
+                lots[hole] = lots[next];
+                blocks[hole] = blocks[next];
+                hole = next;
+            }
+        }
+        lots[hole] = null;
+        lotCount--;
+    }
+
+    private static int sizeClassOf(long size){
+        // Smallest power of two that holds size bytes
+        int sizeClass = MIN_CLASS;
+        while (1L << sizeClass < size)
+            sizeClass++;
+        return sizeClass;
+    }
+
+    private ParkingLot open(long block){
+        // Parking lot of a block, its queues continue from the headers in the block
+        int truckLimit = getInt(block + LIMIT);
+        long ring = MappedQueue.ringSize(truckLimit);
+        return new ParkingLot(getInt(block + CAPACITY), truckLimit,
+                new MappedQueue(this, block + WAITING_HEADER, block + RECORDS, truckLimit),
+                new MappedQueue(this, block + READY_HEADER, block + RECORDS + ring, truckLimit));
+    }
+
+    public synchronized ParkingLot create(int capacityConstraint, int truckLimit){
+        // New empty parking lot in a block of the file, null if the store already has one with this capacityConstraint
+        if (find(capacityConstraint) != -1)
+            return null;
+        long block = allocate(RECORDS + 2 * MappedQueue.ringSize(truckLimit));
+        putInt(block + CAPACITY, capacityConstraint);
+        putInt(block + LIMIT, truckLimit);
+        MappedQueue.clear(this, block + WAITING_HEADER);
+        MappedQueue.clear(this, block + READY_HEADER);
+        putInt(block + STATE, LOT); // Block counts as a parking lot only once it is complete
+        ParkingLot p = open(block);
+        put(p, block);
+        return p;
+    }
+
+    public synchronized void delete(int capacityConstraint){
+        // Frees the block of the parking lot with this capacityConstraint, its ParkingLot must not be used anymore
+        int slot = find(capacityConstraint);
+        if (slot == -1)
+            return;
+        long block = blocks[slot];
+        remove(slot);
+        free(block);
+    }
+
+    synchronized long allocateTable(long size){
+        // Block of at least size bytes for the location table, the caller fills it before it calls setTable
+        long block = allocate(size);
+        putInt(block + STATE, TABLE);
+        return block;
+    }
+
+    synchronized void setTable(long block){
+        // Makes block the location table of the file and frees the one before it
+        long previous = getLong(LOCATIONS_POSITION);
+        putLong(LOCATIONS_POSITION, block);
+        if (previous != 0)
+            free(previous);
+    }
+
+    private long allocate(long size){
+        // Free block of the size class of size, from its free list or from the end of the file, its state is FREE
+        int sizeClass = sizeClassOf(size);
+        long head = FREE_POSITION + 8L * sizeClass;
+        long block = getLong(head);
+        if (block != 0){
+            putLong(head, getLong(block + NEXT_FREE));
+            return block;
+        }
+        block = end;
+        try{
+            map(end + (1L << sizeClass));
+        }catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+        putInt(block, sizeClass);
+        putInt(block + STATE, FREE);
+        end += 1L << sizeClass;
+        putLong(END_POSITION, end);
+        return block;
+    }
+
+    private void free(long block){
+        long head = FREE_POSITION + 8L * getInt(block);
+        putInt(block + STATE, FREE);
+        putLong(block + NEXT_FREE, getLong(head));
+        putLong(head, block);
+    }
+
+    private void map(long size) throws IOException {
+        // Maps chunks until the first size bytes of the file are mapped, mapping past the end of the file makes it longer
+        MappedByteBuffer[] current = chunks;
+        if ((long) current.length << CHUNK_BITS >= size)
+            return;
+        int count = (int) ((size + CHUNK_SIZE - 1) >>> CHUNK_BITS);
+        MappedByteBuffer[] longer = Arrays.copyOf(current, count);
+        for (int i = current.length; i < count; i++){
+            longer[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i << CHUNK_BITS, CHUNK_SIZE);
+            longer[i].order(ByteOrder.LITTLE_ENDIAN);
+        }
+        chunks = longer;
+    }
+
+    // Numbers at file positions, ints and longs are aligned so they never cross the end of a chunk
+    int getInt(long position){
+        return chunks[(int) (position >>> CHUNK_BITS)].getInt((int) position & CHUNK_MASK);
+    }
+
+    void putInt(long position, int value){
+        chunks[(int) (position >>> CHUNK_BITS)].putInt((int) position & CHUNK_MASK, value);
+    }
+
+    private long getLong(long position){
+        return chunks[(int) (position >>> CHUNK_BITS)].getLong((int) position & CHUNK_MASK);
+    }
+
+    private void putLong(long position, long value){
+        chunks[(int) (position >>> CHUNK_BITS)].putLong((int) position & CHUNK_MASK, value);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        // Forces every chunk to disk, parking lots of the store must not be used afterwards
+        for (MappedByteBuffer chunk : chunks)
+            chunk.force();
+        channel.close();
+    }
+}
@@ -0,0 +1,104 @@
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class TruckStoreBenchmark {
+    // Runs a command file with trucks in heap queues and in a memory mapped TruckStore and compares throughput, GCs and heap
+    // Usage: java TruckStoreBenchmark <input file> [rounds]
+    // Store is written next to the input file, a new one for every round, closing it forces its pages to that disk
+    // Commands are parsed into memory once, so only simulating is measured
+    // Heap is what is still used after a full GC at the end of the run, with the parsed commands and for heap queues the trucks
+
+    private static int[] commands = new int[1024];
+    private static int[] firsts = new int[1024];
+    private static int[] seconds = new int[1024];
+    private static String[] texts = new String[1024];
+    private static int size;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0){
+            System.out.println("Usage: java TruckStoreBenchmark <input file> [rounds]");
+            return;
+        }
+        Path inputFile = Paths.get(args[0]);
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        Path storeFile = inputFile.resolveSibling(inputFile.getFileName() + ".store");
+
+        try (FileChannel input = FileChannel.open(inputFile, StandardOpenOption.READ)){
+            new CommandParser(input).parse((command, first, second, text) -> {
+                if (size == commands.length){
+                    commands = Arrays.copyOf(commands, size * 2);
+                    firsts = Arrays.copyOf(firsts, size * 2);
+                    seconds = Arrays.copyOf(seconds, size * 2);
+                    texts = Arrays.copyOf(texts, size * 2);
+                }
+                commands[size] = command;
+                firsts[size] = first;
+                seconds[size] = second;
+                texts[size] = text;
+                size++;
+            });
+        }
+
+        System.out.printf("%-8s %16s %8s %10s %12s %12s %10s%n", "trucks", "commands/s", "GCs", "GC (ms)", "heap (MB)", "file (MB)", "close (ms)");
+        for (int round = 0; round < rounds; round++){ // First round also warms up the JIT
+            for (boolean mapped : new boolean[]{false, true}){
+                Files.deleteIfExists(storeFile);
+                TruckSimulator simulator = new TruckSimulator();
+                TruckStore store = null;
+                if (mapped){
+                    store = new TruckStore(storeFile);
+                    simulator.open(store);
+                }
+                CommandHandler handler = Main.simulate(simulator, new NullResponseSink());
+                System.gc();
+
+                long gcCount = gcCount();
+                long gcTime = gcTime();
+                long start = System.nanoTime();
+                for (int i = 0; i < size; i++)
+                    handler.handle(commands[i], firsts[i], seconds[i], texts[i]);
+                long elapsed = System.nanoTime() - start;
+                gcCount = gcCount() - gcCount;
+                gcTime = gcTime() - gcTime;
+
+                System.gc();
+                Runtime runtime = Runtime.getRuntime();
+                long heap = runtime.totalMemory() - runtime.freeMemory();
+                long file = 0;
+                long close = 0;
+                if (store != null){
+                    file = Files.size(storeFile);
+                    long closeStart = System.nanoTime();
+                    store.close();
+                    close = System.nanoTime() - closeStart;
+                }
+                System.out.printf("%-8s %,16.0f %,8d %,10d %,12d %,12d %,10d%n", mapped ? "store" : "heap", size * 1e9 / elapsed,
+                        gcCount, gcTime, heap >> 20, file >> 20, close / 1_000_000);
+                Reference.reachabilityFence(simulator); // Simulator must not be collected before its heap is measured
+            }
+        }
+        Files.deleteIfExists(storeFile);
+    }
+
+    private static long gcTime(){
+        long time = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+            time += Math.max(0, collector.getCollectionTime());
+        return time;
+    }
+
+    private static long gcCount(){
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+            count += Math.max(0, collector.getCollectionCount());
+        return count;
+    }
+}
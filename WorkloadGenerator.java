@@ -0,0 +1,199 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+public class WorkloadGenerator {
+    // Writes a random command file in the format Main reads, same options and seed always give the same file
+    // Usage: java WorkloadGenerator [options] <output file>
+    //   -commands n         commands after the initial parking lots (1000000)
+    //   -lots n             parking lots created at the beginning (1000)
+    //   -max-capacity n     capacities are in [1, n] (100000)
+    //   -limit n            truck limit of parking lots is in [1, n] (100)
+    //   -distribution d     uniform, zipfian, clustered or walk capacities (uniform)
+    //   -mix a,r,l,c,cr,d   percentages of add_truck, ready, load, count, create_parking_lot, delete_parking_lot (45,25,15,10,3,2)
+    //                       a create or delete that is not possible at that point is written as a count
+    //   -seed n             seed of the random numbers (1)
+    //   -batch n            initial parking lots are written as create_parking_lots lines of n parking lots (0, one per line)
+
+    private static final int ZIPF_RANKS = 1 << 16; // Zipfian capacities come from this many distinct ranks
+    private static final double ZIPF_EXPONENT = 0.99;
+    private static final int CLUSTERS = 8; // Clustered capacities are around this many centers
+    private static final int WALK_STEPS = 10_000; // Walk capacities move by about 1 / WALK_STEPS of the range each time
+
+    private final Random random;
+    private final String distribution;
+    private final int maxCapacity;
+    private double[] zipfCumulative; // Cumulative probabilities of the zipfian ranks
+    private final int[] centers = new int[CLUSTERS];
+    private int walk; // Last walk capacity
+
+    WorkloadGenerator(String distribution, int maxCapacity, long seed){
+        this.random = new Random(seed);
+        this.distribution = distribution;
+        this.maxCapacity = maxCapacity;
+
+        if (distribution.equals("zipfian")){
+            int ranks = Math.min(ZIPF_RANKS, maxCapacity);
+            zipfCumulative = new double[ranks];
+            double sum = 0;
+            for (int i = 0; i < ranks; i++){
+                sum += 1 / Math.pow(i + 1, ZIPF_EXPONENT);
+                zipfCumulative[i] = sum;
+            }
+            for (int i = 0; i < ranks; i++)
+                zipfCumulative[i] /= sum;
+        }
+        for (int i = 0; i < CLUSTERS; i++)
+            centers[i] = 1 + random.nextInt(maxCapacity);
+        walk = 1 + random.nextInt(maxCapacity);
+    }
+
+    public int nextCapacity(){
+        // Random capacity in [1, maxCapacity] from the chosen distribution
+        switch (distribution){
+            case "zipfian": {
+                // Rank 0 is the most frequent one, ranks are spread over the whole capacity range
+                int rank = Arrays.binarySearch(zipfCumulative, random.nextDouble());
+                if (rank < 0)
+                    rank = -rank - 1;
+                return 1 + (int) ((long) rank * maxCapacity / zipfCumulative.length);
+            }
+            case "clustered": {
+                // Normal distribution around one of the centers, with a spread of 1% of the range
+                int center = centers[random.nextInt(CLUSTERS)];
+                long capacity = center + Math.round(random.nextGaussian() * Math.max(1, maxCapacity / 100));
+                return (int) Math.max(1, Math.min(maxCapacity, capacity));
+            }
+            case "walk": {
+                // Random walk, consecutive commands use nearby capacities like a depot working through its lots in order
+                long capacity = walk + Math.round(random.nextGaussian() * Math.max(1, maxCapacity / WALK_STEPS));
+                walk = (int) Math.max(1, Math.min(maxCapacity, capacity));
+                return walk;
+            }
+            default:
+                return 1 + random.nextInt(maxCapacity);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        long commands = 1_000_000;
+        int lots = 1000;
+        int maxCapacity = 100_000;
+        int limit = 100;
+        String distribution = "uniform";
+        String mix = "45,25,15,10,3,2";
+        long seed = 1;
+        int batch = 0;
+
+        int i = 0;
+        while (i < args.length - 1 && args[i].startsWith("-")){
+            String flag = args[i++];
+            String value = args[i++];
+            switch (flag){
+                case "-commands": commands = Long.parseLong(value); break;
+                case "-lots": lots = Integer.parseInt(value); break;
+                case "-max-capacity": maxCapacity = Integer.parseInt(value); break;
+                case "-limit": limit = Integer.parseInt(value); break;
+                case "-distribution": distribution = value; break;
+                case "-mix": mix = value; break;
+                case "-seed": seed = Long.parseLong(value); break;
+                case "-batch": batch = Integer.parseInt(value); break;
+                default:
+                    System.out.println("Unknown option " + flag);
+                    return;
+            }
+        }
+        if (i != args.length - 1){
+            System.out.println("Usage: java WorkloadGenerator [options] <output file>");
+            return;
+        }
+        if (!distribution.equals("uniform") && !distribution.equals("zipfian") && !distribution.equals("clustered") && !distribution.equals("walk")){
+            System.out.println("Unknown distribution " + distribution);
+            return;
+        }
+
+        // Cumulative percentages of the command mix, in the order of the -mix option
+        String[] parts = mix.split(",");
+        int[] cumulative = new int[6];
+        int sum = 0;
+        for (int c = 0; c < 6; c++){
+            sum += c < parts.length ? Integer.parseInt(parts[c].trim()) : 0;
+            cumulative[c] = sum;
+        }
+
+        WorkloadGenerator generator = new WorkloadGenerator(distribution, maxCapacity, seed);
+        Random random = generator.random;
+        HashSet<Integer> existing = new HashSet<>(); // Capacities of the parking lots that exist at this point
+        ArrayList<Integer> existingList = new ArrayList<>(); // Same capacities, so that one can be picked randomly
+
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(args[i]), 1 << 16)){
+            for (int l = 0; l < lots; l++){
+                if (batch > 0 && l % batch == 0){
+                    if (l > 0)
+                        out.newLine();
+                    out.write("create_parking_lots");
+                }
+                generator.create(out, existing, existingList, limit, batch > 0);
+            }
+            if (batch > 0 && lots > 0)
+                out.newLine();
+
+            int truckID = 0;
+            for (long c = 0; c < commands; c++){
+                int roll = random.nextInt(Math.max(1, sum));
+                if (roll < cumulative[0])
+                    out.write("add_truck " + (truckID++) + " " + generator.nextCapacity());
+                else if (roll < cumulative[1])
+                    out.write("ready " + generator.nextCapacity());
+                else if (roll < cumulative[2]){
+                    int capacity = generator.nextCapacity();
+                    out.write("load " + capacity + " " + (1 + random.nextInt((int) Math.min(Integer.MAX_VALUE, capacity * 10L))));
+                }
+                else if (roll < cumulative[3])
+                    out.write("count " + generator.nextCapacity());
+                else if (roll < cumulative[4]){
+                    if (generator.create(out, existing, existingList, limit, false))
+                        continue; // create wrote its own line
+                    // Range is crowded, a count takes the slot so the file still has exactly commands commands
+                    out.write("count " + generator.nextCapacity());
+                }
+                else if (existingList.isEmpty())
+                    out.write("count " + generator.nextCapacity()); // Nothing to delete, see above
+                else{
+                    // Removed by swapping with the last element, order of existingList does not matter
+                    int index = random.nextInt(existingList.size());
+                    int capacity = existingList.get(index);
+                    existingList.set(index, existingList.get(existingList.size() - 1));
+                    existingList.remove(existingList.size() - 1);
+                    existing.remove(capacity);
+                    out.write("delete_parking_lot " + capacity);
+                }
+                out.newLine();
+            }
+        }
+    }
+
+    private boolean create(BufferedWriter out, HashSet<Integer> existing, ArrayList<Integer> existingList, int limit, boolean batched) throws IOException {
+        // Creates a parking lot with a capacity that does not exist yet, gives up after a few tries if the range is crowded
+        // A batched parking lot is only its operands, appended to the create_parking_lots line being written
+        // Returns whether a parking lot was written
+        for (int attempt = 0; attempt < 16; attempt++){
+            int capacity = nextCapacity();
+            if (existing.add(capacity)){
+                existingList.add(capacity);
+                if (batched){
+                    out.write(" " + capacity + " " + (1 + random.nextInt(limit)));
+                    return true;
+                }
+                out.write("create_parking_lot " + capacity + " " + (1 + random.nextInt(limit)));
+                out.newLine();
+                return true;
+            }
+        }
+        return false;
+    }
+}
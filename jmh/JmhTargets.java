@@ -0,0 +1,75 @@
+import benchmarks.Targets;
+
+public class JmhTargets implements Targets {
+    // Handles of the JMH benchmarks on the simulator classes, see Targets
+
+    private static final int TRUCKS_PER_LOT = 4; // Ready trucks of every parking lot of a cascade
+
+    @Override
+    public Index index(String name, int lots){
+        // Parking lots are given to build in sorted order, so even 10^7 of them are set up quickly with every index
+        Options options = new Options();
+        options.universe = lots * 4;
+        LotIndex index = options.createIndex(name);
+        ParkingLot[] all = new ParkingLot[lots];
+        for (int i = 0; i < lots; i++)
+            all[i] = new ParkingLot(i * 4, 1);
+        index.build(all);
+        return new Index() {
+            public void insert(int lot){
+                index.insert(all[lot]);
+            }
+
+            public void delete(int lot){
+                index.delete(all[lot].getCapacityConstraint());
+            }
+
+            public boolean findSmallerThan(int capacity){
+                return index.findSmallerThan(capacity, ParkingLot.FREE) != null;
+            }
+
+            public boolean findGreaterThan(int capacity){
+                return index.findGreaterThan(capacity, ParkingLot.FREE) != null;
+            }
+
+            public long count(int capacity){
+                return index.count(capacity);
+            }
+        };
+    }
+
+    @Override
+    public Queue queue(int limit){
+        MyQueue queue = new MyQueue(limit);
+        return new Queue() {
+            public void enqueue(int id){
+                queue.enqueue(id, id, 0);
+            }
+
+            public int dequeue(){
+                int id = queue.getFirstID();
+                queue.dequeue();
+                return id;
+            }
+        };
+    }
+
+    @Override
+    public Cascade cascade(String index, int depth){
+        // Parking lots 10, 20, ... each with TRUCKS_PER_LOT ready trucks of the same capacity, like SimulatorBenchmark
+        Options options = new Options();
+        options.universe = 10 * depth + 1;
+        TruckSimulator simulator = new TruckSimulator(options.createIndex(index));
+        ResponseSink out = new NullResponseSink();
+        int id = 0;
+        for (int lot = 1; lot <= depth; lot++){
+            simulator.createParkingLot(lot * 10, TRUCKS_PER_LOT);
+            for (int t = 0; t < TRUCKS_PER_LOT; t++)
+                simulator.addTruck(id++, lot * 10, out);
+        }
+        for (int t = 0; t < id; t++)
+            simulator.ready(0, out);
+        int loadAmount = TRUCKS_PER_LOT * 10 * depth * (depth + 1) / 2; // Exactly fills every ready truck
+        return () -> simulator.load(0, loadAmount, out);
+    }
+}
@@ -0,0 +1,78 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndexBenchmark {
+    // Index operations from 10^3 to 10^6 parking lots, keys are multiples of 4 and queries are random numbers in the same range
+    // 10^7 parking lots need a larger heap: -p lots=10000000 -jvmArgs -Xmx8g
+
+    private static final int RANDOM_COUNT = 1 << 16; // Random queries and parking lots, used in a cycle
+
+    @Param({"avl", "arrayavl", "bitset", "treemap", "array"})
+    public String index;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int lots;
+
+    private Targets.Index target;
+    private final int[] queries = new int[RANDOM_COUNT];
+    private final int[] randomLots = new int[RANDOM_COUNT];
+    private int next;
+
+    @Setup
+    public void setUp(){
+        target = Targets.load().index(index, lots);
+        Random random = new Random(lots);
+        for (int i = 0; i < RANDOM_COUNT; i++){
+            queries[i] = random.nextInt(lots * 4);
+            randomLots[i] = random.nextInt(lots);
+        }
+    }
+
+    private int nextQuery(){
+        next = (next + 1) & (RANDOM_COUNT - 1);
+        return queries[next];
+    }
+
+    @Benchmark
+    public void deleteInsert(){
+        // Deletes a parking lot and inserts it again, so the index keeps its size
+        next = (next + 1) & (RANDOM_COUNT - 1);
+        int lot = randomLots[next];
+        target.delete(lot);
+        target.insert(lot);
+    }
+
+    @Benchmark
+    public boolean findSmallerThan(){
+        return target.findSmallerThan(nextQuery());
+    }
+
+    @Benchmark
+    public boolean findGreaterThan(){
+        return target.findGreaterThan(nextQuery());
+    }
+
+    @Benchmark
+    public long count(){
+        return target.count(nextQuery());
+    }
+}
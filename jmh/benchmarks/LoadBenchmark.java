@@ -0,0 +1,59 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoadBenchmark {
+    // End to end load commands whose cascade visits depth parking lots, an operation is one load command
+    // A load empties the ready sections it visits, so every invocation loads CASCADES simulators built by a setup that is not
+    // measured, enough work to hide the timing of the setup even at depth 1
+    // The GC profiler also counts what that setup allocates, so gc.alloc.rate.norm is an upper bound here, SimulatorBenchmark
+    // measures the allocation of the loads alone
+
+    private static final int CASCADES = 100;
+
+    @Param({"avl", "arrayavl", "bitset"})
+    public String index;
+
+    @Param({"1", "10", "100", "1000"})
+    public int depth;
+
+    private Targets targets;
+    private final Targets.Cascade[] cascades = new Targets.Cascade[CASCADES];
+
+    @Setup
+    public void setUpTargets(){
+        targets = Targets.load();
+    }
+
+    @Setup(Level.Invocation)
+    public void setUp(){
+        for (int i = 0; i < CASCADES; i++)
+            cascades[i] = targets.cascade(index, depth);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CASCADES)
+    public void load(){
+        for (Targets.Cascade cascade : cascades)
+            cascade.load();
+    }
+}
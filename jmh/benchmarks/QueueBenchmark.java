@@ -0,0 +1,41 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueueBenchmark {
+    // MyQueue kept half full, an operation is one enqueue and one dequeue
+
+    private static final int LIMIT = 1024;
+
+    private Targets.Queue queue;
+    private int id;
+
+    @Setup
+    public void setUp(){
+        queue = Targets.load().queue(LIMIT);
+        for (id = 0; id < LIMIT / 2; id++)
+            queue.enqueue(id);
+    }
+
+    @Benchmark
+    public int enqueueDequeue(){
+        queue.enqueue(id++);
+        return queue.dequeue();
+    }
+}
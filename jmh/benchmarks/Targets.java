@@ -0,0 +1,40 @@
+package benchmarks;
+
+public interface Targets {
+    // Simulator classes are in the default package, which code in a package can not name, and JMH does not accept benchmarks in
+    // the default package, so benchmarks reach the simulator through this interface, implemented by JmhTargets
+    // Every handle has a single implementation, so the JIT inlines its calls like direct calls to the simulator
+
+    static Targets load(){
+        try{
+            return (Targets) Class.forName("JmhTargets").getDeclaredConstructor().newInstance();
+        }catch (ReflectiveOperationException e){
+            throw new IllegalStateException("JmhTargets is not on the class path", e);
+        }
+    }
+
+    interface Index {
+        // Index of lots parking lots with capacityConstraints 0, 4, 8, ..., every one has a free slot
+        void insert(int lot); // Inserts parking lot number lot again after delete
+        void delete(int lot);
+        boolean findSmallerThan(int capacity); // Searches with ParkingLot.FREE, true if a parking lot is found
+        boolean findGreaterThan(int capacity);
+        long count(int capacity);
+    }
+
+    interface Queue {
+        void enqueue(int id);
+        int dequeue(); // ID of the removed truck
+    }
+
+    interface Cascade {
+        // Simulator whose load visits depth parking lots and fills every ready truck in them, it can only be loaded once
+        void load();
+    }
+
+    Index index(String name, int lots); // Index names are the ones of -index
+
+    Queue queue(int limit); // Empty MyQueue
+
+    Cascade cascade(String index, int depth);
+}